@@ -0,0 +1,33 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class BenchmarkPositions {
+
+	// fixed corpus: keep it stable so results stay comparable between releases
+	private static final Map<String, String> FENS = new LinkedHashMap<>();
+
+	static {
+		// middlegames
+		FENS.put("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		FENS.put("italian", "r1bq1rk1/pppp1ppp/2n2n2/2b1p3/2B1P3/2NP1N2/PPP2PPP/R1BQ1RK1 w - - 0 7");
+		FENS.put("position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+		FENS.put("inCheck", "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3");
+		FENS.put("foolsMate", "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+
+		// endgames
+		FENS.put("position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+		FENS.put("rookEnding", "8/5pk1/6p1/8/3R4/5PK1/r5P1/8 w - - 0 40");
+		FENS.put("queenVsPawn", "8/8/8/8/8/2k5/1p6/1K1Q4 w - - 0 60");
+	}
+
+	private BenchmarkPositions() {
+	}
+
+	public static ChessMatch match(String name) {
+		String fen = FENS.get(name);
+		if (fen == null) throw new IllegalArgumentException("Unknown benchmark position: " + name);
+		return ChessMatch.fromFen(fen);
+	}
+}
@@ -0,0 +1,29 @@
+package chess;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+	// same as the stock JMH main, but always with -prof gc and a JSON report to keep per release
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions cli = new CommandLineOptions(args);
+
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(cli);
+		options.addProfiler(GCProfiler.class);
+		if (!cli.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cli.getResult().hasValue()) {
+			options.result("jmh-result.json");
+		}
+
+		new Runner(options.build()).run();
+	}
+}
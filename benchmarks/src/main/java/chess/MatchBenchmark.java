@@ -0,0 +1,94 @@
+package chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchBenchmark {
+
+	@Param({"kiwipete", "italian", "position6", "inCheck", "foolsMate", "position3", "rookEnding", "queenVsPawn"})
+	public String position;
+
+	private ChessMatch match;
+	private ChessPosition origin;
+	private ChessPosition target;
+
+	// performMove changes the match, so it gets a fresh copy of the position every call
+	private ChessMatch moveMatch;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		match = BenchmarkPositions.match(position);
+		if (match.getCheckMate()) return;
+
+		// first legal move in board order, replayed by performMove
+		ChessPiece[][] pieces = match.getPieces();
+		for (int i = 0; i < 8 && origin == null; i++) {
+			for (int j = 0; j < 8 && origin == null; j++) {
+				if (pieces[i][j] == null || pieces[i][j].getColor() != match.getCurrentPlayer()) continue;
+
+				boolean[][] mat = pieces[i][j].possibleMoves();
+				for (int r = 0; r < 8 && origin == null; r++) {
+					for (int c = 0; c < 8 && origin == null; c++) {
+						if (mat[r][c] && tryMove(pieces[i][j].getChessPosition(), new ChessPosition((char) ('a' + c), 8 - r))) {
+							origin = pieces[i][j].getChessPosition();
+							target = new ChessPosition((char) ('a' + c), 8 - r);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private boolean tryMove(ChessPosition from, ChessPosition to) {
+		try {
+			BenchmarkPositions.match(position).performMove(from, to);
+			return true;
+		} catch (ChessException e) {
+			return false;
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void resetMoveMatch() {
+		moveMatch = BenchmarkPositions.match(position);
+	}
+
+	@Benchmark
+	public ChessPiece performMove() {
+		if (origin == null) return null;
+		return moveMatch.performMove(origin, target);
+	}
+
+	@Benchmark
+	public boolean testCheck() {
+		return match.testCheck(match.getCurrentPlayer());
+	}
+
+	@Benchmark
+	public boolean testCheckMate() {
+		return match.testCheckMate(match.getCurrentPlayer());
+	}
+
+	@Benchmark
+	public ChessPiece[][] getPieces() {
+		return match.getPieces();
+	}
+}
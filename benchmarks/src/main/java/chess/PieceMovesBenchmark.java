@@ -0,0 +1,87 @@
+package chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// possibleMoves() of every piece of one type in the position, both colors
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceMovesBenchmark {
+
+	@Param({"kiwipete", "italian", "position6", "position3", "rookEnding", "queenVsPawn"})
+	public String position;
+
+	private ChessPiece[][] pieces = new ChessPiece[6][];
+
+	@Setup
+	public void setup() {
+		List<List<ChessPiece>> byType = new ArrayList<>();
+		for (int type = 0; type < 6; type++) {
+			byType.add(new ArrayList<>());
+		}
+
+		for (ChessPiece[] row : BenchmarkPositions.match(position).getPieces()) {
+			for (ChessPiece piece : row) {
+				if (piece != null) byType.get(piece.getType()).add(piece);
+			}
+		}
+
+		for (int type = 0; type < 6; type++) {
+			pieces[type] = byType.get(type).toArray(new ChessPiece[0]);
+		}
+	}
+
+	private void possibleMoves(int type, Blackhole bh) {
+		for (ChessPiece piece : pieces[type]) {
+			bh.consume(piece.possibleMoves());
+		}
+	}
+
+	@Benchmark
+	public void pawn(Blackhole bh) {
+		possibleMoves(BitBoard.PAWN, bh);
+	}
+
+	@Benchmark
+	public void knight(Blackhole bh) {
+		possibleMoves(BitBoard.KNIGHT, bh);
+	}
+
+	@Benchmark
+	public void bishop(Blackhole bh) {
+		possibleMoves(BitBoard.BISHOP, bh);
+	}
+
+	@Benchmark
+	public void rook(Blackhole bh) {
+		possibleMoves(BitBoard.ROOK, bh);
+	}
+
+	@Benchmark
+	public void queen(Blackhole bh) {
+		possibleMoves(BitBoard.QUEEN, bh);
+	}
+
+	@Benchmark
+	public void king(Blackhole bh) {
+		possibleMoves(BitBoard.KING, bh);
+	}
+}
@@ -0,0 +1,96 @@
+package application;
+
+import archive.GameReader;
+import archive.GameWriter;
+import chess.BitBoard;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import chess.San;
+import pgn.GameResult;
+import pgn.PgnReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class ArchiveProgram {
+
+	// converts a PGN file to the binary game format: ArchiveProgram --convert <pgn> <games>, replays every game
+	// of a converted file: ArchiveProgram <games>, or prints one of its games: ArchiveProgram <games> --show <n>
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: ArchiveProgram --convert <pgn> <games> | <games> [--show n]");
+			return;
+		}
+		if (args[0].equals("--convert")) {
+			convert(Paths.get(args[1]), Paths.get(args[2]));
+			return;
+		}
+		if (args.length == 3 && args[1].equals("--show")) {
+			show(Paths.get(args[0]), Long.parseLong(args[2]));
+			return;
+		}
+		replay(Paths.get(args[0]));
+	}
+
+	// the legal games only; the others are reported and left out
+	private static void convert(Path pgn, Path target) throws IOException {
+		long start = System.nanoTime();
+		long skipped = 0;
+		try (PgnReader reader = new PgnReader(pgn); GameWriter writer = new GameWriter(target)) {
+			reader.setListener(writer);
+			GameResult result;
+			while ((result = reader.next()) != null) {
+				if (result.isLegal()) {
+					writer.write(result.getStartPosition(), result.getResult(), result.getWhiteElo(), result.getBlackElo());
+				} else {
+					writer.discard();
+					skipped++;
+				}
+			}
+			System.out.printf("%d games written, %d illegal games left out%n", writer.getGames(), skipped);
+		}
+		long pgnSize = Files.size(pgn);
+		long size = Files.size(target);
+		System.out.printf("%.2f s, %d bytes from %d, %.1f times smaller%n", (System.nanoTime() - start) / 1e9, size, pgnSize,
+				(double) pgnSize / size);
+	}
+
+	private static void replay(Path path) throws IOException {
+		try (GameReader reader = new GameReader(path)) {
+			BitBoard board = new BitBoard();
+			long plies = 0;
+			long start = System.nanoTime();
+			for (long game = 0; game < reader.getGames(); game++) {
+				reader.replay(game, board);
+				plies += reader.getPlies(game);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d games, %d plies%n", reader.getGames(), plies);
+			System.out.printf("%.3f s, %.0f games/s, %.0f plies/s%n", seconds, reader.getGames() / seconds, plies / seconds);
+		}
+	}
+
+	private static void show(Path path, long game) throws IOException {
+		try (GameReader reader = new GameReader(path)) {
+			String start = reader.getStartPosition(game);
+			BitBoard board = Fen.parse((start == null) ? Fen.INITIAL : start);
+			MoveList list = new MoveList();
+			StringBuilder movetext = new StringBuilder();
+			for (int ply = 0; ply < reader.getPlies(game); ply++) {
+				int packed = reader.getMove(game, ply);
+				int move = board.createMove(Move.from(packed), Move.to(packed), Move.promotion(packed));
+				if (ply % 2 == 0) movetext.append(ply / 2 + 1).append(". ");
+				San.append(board, move, list, movetext).append(' ');
+				board.makeMove(move);
+			}
+			if (start != null) System.out.println("[FEN \"" + start + "\"]");
+			System.out.println("[WhiteElo \"" + reader.getWhiteElo(game) + "\"]");
+			System.out.println("[BlackElo \"" + reader.getBlackElo(game) + "\"]");
+			System.out.println();
+			System.out.println(movetext.append(reader.getResult(game)));
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package application;
+
+import archive.GameReader;
+import chess.BitBoard;
+import chess.Fen;
+import chess.San;
+import explorer.MoveStatistics;
+import explorer.OpeningTree;
+import explorer.OpeningTreeBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExplorerProgram {
+
+	private static final int DEFAULT_PLIES = 40;
+	private static final int TIMED_LOOKUPS = 100000;
+
+	// adds the games of binary game files to an opening tree, created when missing:
+	// ExplorerProgram <tree> --add <games>... [--plies n], or shows the moves played from a position:
+	// ExplorerProgram <tree> --probe [fen]
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: ExplorerProgram <tree> --add <games>... [--plies n] | --probe [fen]");
+			return;
+		}
+		Path tree = Paths.get(args[0]);
+		if (args[1].equals("--probe")) {
+			probe(tree, (args.length > 2) ? args[2] : Fen.INITIAL);
+			return;
+		}
+		if (!args[1].equals("--add")) throw new IllegalArgumentException("Unknown option " + args[1]);
+
+		int plies = DEFAULT_PLIES;
+		List<Path> files = new ArrayList<>();
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("--plies")) plies = Integer.parseInt(args[++i]);
+			else files.add(Paths.get(args[i]));
+		}
+
+		long start = System.nanoTime();
+		long games = 0;
+		try (OpeningTreeBuilder builder = new OpeningTreeBuilder(tree, plies)) {
+			for (Path file : files) {
+				try (GameReader reader = new GameReader(file)) {
+					builder.addGames(reader, 0, reader.getGames());
+					games += reader.getGames();
+				}
+			}
+		}
+		try (OpeningTree opened = new OpeningTree(tree)) {
+			System.out.printf("%d games added, %d moves over all positions in %d blocks, %d bytes%n", games,
+					opened.getEntries(), opened.getBlocks(), Files.size(tree));
+		}
+		System.out.printf("%.2f s%n", (System.nanoTime() - start) / 1e9);
+	}
+
+	private static void probe(Path path, String fen) throws IOException {
+		BitBoard board = Fen.parse(fen);
+		long key = board.getKey();
+		try (OpeningTree tree = new OpeningTree(path)) {
+			MoveStatistics statistics = new MoveStatistics();
+			long start = System.nanoTime();
+			for (int i = 0; i < TIMED_LOOKUPS; i++) {
+				tree.lookup(key, statistics);
+			}
+			double micros = (System.nanoTime() - start) / 1e3 / TIMED_LOOKUPS;
+
+			int total = statistics.getTotalGames();
+			System.out.printf("%d games, %.2f us a lookup%n", total, micros);
+			Integer[] order = new Integer[statistics.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Integer.compare(statistics.getGames(b), statistics.getGames(a)));
+			for (int i : order) {
+				int move = board.createMove(statistics.getFrom(i), statistics.getTo(i), statistics.getPromotion(i));
+				int games = statistics.getGames(i);
+				System.out.printf("  %-7s %7d %5.1f%% white %5.1f%% draws %5.1f%% black, average rating %d%n", San.toSan(board, move),
+						games, 100.0 * statistics.getWhiteWins(i) / games, 100.0 * statistics.getDraws(i) / games,
+						100.0 * statistics.getBlackWins(i) / games, statistics.getAverageRating(i));
+			}
+		}
+	}
+}
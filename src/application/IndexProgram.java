@@ -0,0 +1,78 @@
+package application;
+
+import archive.GameReader;
+import archive.PositionIndex;
+import chess.Fen;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+public class IndexProgram {
+
+	private static final int SHOWN_GAMES = 10;
+
+	// adds the positions of a game file to an index, created when missing: IndexProgram <index> --add <games>,
+	// shows where a position occurs: IndexProgram <index> --probe <fen>, or lists the positions occurring most
+	// often: IndexProgram <index> --common <n>
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: IndexProgram <index> --add <games> | --probe <fen> | --common <n>");
+			return;
+		}
+		try (PositionIndex index = new PositionIndex(Paths.get(args[0]))) {
+			switch (args[1]) {
+				case "--add": add(index, Paths.get(args[2])); break;
+				case "--probe": probe(index, args[2]); break;
+				case "--common": common(index, Integer.parseInt(args[2])); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[1]);
+			}
+		}
+	}
+
+	private static void add(PositionIndex index, Path path) throws IOException {
+		try (GameReader reader = new GameReader(path)) {
+			long start = System.nanoTime();
+			long added = index.addGames(reader, 0, reader.getGames());
+			index.force();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d games, %d positions added, %d distinct in the index%n", reader.getGames(), added,
+					index.getPositions());
+			System.out.printf("%.2f s, %.0f positions/s%n", seconds, added / seconds);
+		}
+	}
+
+	private static void probe(PositionIndex index, String fen) {
+		long key = Fen.parse(fen).getKey();
+		long start = System.nanoTime();
+		long[] games = new long[SHOWN_GAMES];
+		int shown = index.getGames(key, games);
+		long nanos = System.nanoTime() - start;
+		System.out.printf("%d occurrences in %d games (%d us)%n", index.getOccurrences(key), index.getGames(key), nanos / 1000);
+		StringBuilder line = new StringBuilder("latest games:");
+		for (int i = 0; i < shown; i++) {
+			line.append(' ').append(games[i]);
+		}
+		if (shown > 0) System.out.println(line);
+	}
+
+	// a scan of the whole key range, keeping the n most frequent
+	private static void common(PositionIndex index, int n) {
+		PriorityQueue<long[]> top = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+		index.range(0, -1, (key, occurrences, games) -> {
+			if (top.size() < n || occurrences > top.peek()[1]) {
+				top.add(new long[] {key, occurrences, games});
+				if (top.size() > n) top.poll();
+			}
+		});
+		long[][] sorted = top.toArray(new long[0][]);
+		Arrays.sort(sorted, (a, b) -> Long.compare(b[1], a[1]));
+		long[] games = new long[1];
+		for (long[] entry : sorted) {
+			index.getGames(entry[0], games);
+			System.out.printf("%016x: %d occurrences in %d games, latest %d%n", entry[0], entry[1], entry[2], games[0]);
+		}
+	}
+}
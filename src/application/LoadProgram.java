@@ -0,0 +1,184 @@
+package application;
+
+import chess.BitBoard;
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.MoveList;
+import server.GameClient;
+import server.GameServer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class LoadProgram {
+
+	private static final long STACK_SIZE = 256 * 1024;
+
+	// plays random games on a game server from many connections at once, each keeping several games going,
+	// and reports the latency of the moves: LoadProgram [--port n] [--games n] [--connections n] [--seconds n]
+	// [--plies n]. Without a port, a server is started in this process
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = 0;
+		int games = 10000;
+		int connections = 500;
+		int seconds = 30;
+		int plies = 80;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--port": port = Integer.parseInt(args[++i]); break;
+				case "--games": games = Integer.parseInt(args[++i]); break;
+				case "--connections": connections = Integer.parseInt(args[++i]); break;
+				case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+				case "--plies": plies = Integer.parseInt(args[++i]); break;
+				default: throw new IllegalArgumentException("Usage: LoadProgram [--port n] [--games n] [--connections n] [--seconds n] [--plies n]");
+			}
+		}
+		connections = Math.min(connections, games);
+
+		GameServer server = null;
+		if (port == 0) {
+			server = new GameServer(0);
+			server.start();
+			port = server.getPort();
+		}
+
+		// the clock starts once every game is open
+		CountDownLatch ready = new CountDownLatch(connections);
+		CountDownLatch go = new CountDownLatch(1);
+		Player[] players = new Player[connections];
+		Thread[] threads = new Thread[connections];
+		for (int i = 0; i < connections; i++) {
+			int owned = games / connections + ((i < games % connections) ? 1 : 0);
+			players[i] = new Player(port, owned, plies, ready, go);
+			threads[i] = new Thread(null, players[i], "player", STACK_SIZE);
+			threads[i].start();
+		}
+		ready.await();
+		long start = System.nanoTime();
+		long deadline = start + seconds * 1_000_000_000L;
+		int open = (server == null) ? games : server.getMatches();
+		for (Player player : players) {
+			player.deadline = deadline;
+		}
+		go.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		long moves = 0;
+		long finished = 0;
+		long errors = 0;
+		for (Player player : players) {
+			moves += player.count;
+			finished += player.finished;
+			errors += player.errors;
+		}
+		long[] latencies = new long[(int) moves];
+		int at = 0;
+		for (Player player : players) {
+			System.arraycopy(player.latencies, 0, latencies, at, player.count);
+			at += player.count;
+		}
+		Arrays.sort(latencies);
+
+		System.out.printf("%d games open on %d connections, %d moves in %.1f s, %.0f moves/s%n", open, connections, moves,
+				elapsed, moves / elapsed);
+		System.out.printf("move latency: p50 %s, p90 %s, p99 %s, p99.9 %s, max %s%n", percentile(latencies, 0.5),
+				percentile(latencies, 0.9), percentile(latencies, 0.99), percentile(latencies, 0.999), percentile(latencies, 1));
+		System.out.printf("%d games finished, %d errors%n", finished, errors);
+		if (server != null) server.close();
+	}
+
+	private static String percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) return "-";
+		long nanos = sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+		return (nanos < 1_000_000) ? String.format("%d us", nanos / 1000) : String.format("%.1f ms", nanos / 1e6);
+	}
+
+	// one connection, moving in each of its games in turn with a random legal move. The server's replies are
+	// checked against the player's own board, and a game that ends, or reaches the plies, is replaced
+	private static class Player implements Runnable {
+
+		private final int port;
+		private final long[] matches;
+		private final BitBoard[] boards;
+		private final int plies;
+		private final CountDownLatch ready;
+		private final CountDownLatch go;
+		// set before go opens
+		private long deadline;
+
+		private long[] latencies = new long[1024];
+		private int count;
+		private long finished;
+		private long errors;
+
+		Player(int port, int games, int plies, CountDownLatch ready, CountDownLatch go) {
+			this.port = port;
+			this.plies = plies;
+			this.ready = ready;
+			this.go = go;
+			matches = new long[games];
+			boards = new BitBoard[games];
+		}
+
+		@Override
+		public void run() {
+			boolean counted = false;
+			try (GameClient client = new GameClient(port)) {
+				BitBoard initial = Fen.parse(Fen.INITIAL);
+				for (int i = 0; i < matches.length; i++) {
+					matches[i] = client.newMatch();
+					boards[i] = new BitBoard(initial);
+				}
+				ready.countDown();
+				counted = true;
+				go.await();
+
+				MoveList list = new MoveList();
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (true) {
+					for (int i = 0; i < matches.length; i++) {
+						if (System.nanoTime() >= deadline) return;
+						BitBoard board = boards[i];
+						list.clear();
+						MoveGenerator.generateLegal(board, list);
+						int move = list.get(random.nextInt(list.size()));
+
+						long start = System.nanoTime();
+						String reply = client.move(matches[i], move);
+						record(System.nanoTime() - start);
+
+						board.makeMove(move);
+						list.clear();
+						MoveGenerator.generateLegal(board, list);
+						boolean check = board.inCheck(board.getSideToMove());
+						String expected = (list.size() == 0 && check) ? "OK CHECKMATE" : check ? "OK CHECK" : "OK";
+						if (!reply.equals(expected)) errors++;
+						if (list.size() == 0 || board.getFullmoveNumber() * 2 > plies || !reply.equals(expected)) {
+							client.endMatch(matches[i]);
+							matches[i] = client.newMatch();
+							board.copy(initial);
+							finished++;
+						}
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				errors++;
+				System.err.println("player: " + e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (!counted) ready.countDown();
+			}
+		}
+
+		private void record(long nanos) {
+			if (count == latencies.length) latencies = Arrays.copyOf(latencies, 2 * count);
+			latencies[count++] = nanos;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Perft;
+
+import java.util.Map;
+
+public class PerftProgram {
+
+	// https://www.chessprogramming.org/Perft_Results
+	private static final String[] SUITE_FENS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+	};
+
+	private static final long[][] SUITE_NODES = {
+			{20, 400, 8902, 197281, 4865609, 119060324L},
+			{48, 2039, 97862, 4085603, 193690690L},
+			{14, 191, 2812, 43238, 674624, 11030083},
+			{6, 264, 9467, 422333, 15833292},
+			{44, 1486, 62379, 2103487, 89941194},
+			{46, 2079, 89890, 3894594, 164075551}
+	};
+
+	public static void main(String[] args) {
+		int depth = 4;
+		String fen = null;
+		boolean divide = false;
+		boolean bulk = false;
+		boolean suite = false;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--divide": divide = true; break;
+				case "--bulk": bulk = true; break;
+				case "--suite": suite = true; break;
+				case "--fen": fen = args[++i]; break;
+				default: depth = Integer.parseInt(args[i]);
+			}
+		}
+
+		try {
+			if (suite) {
+				runSuite(depth, bulk);
+				return;
+			}
+
+			Perft perft = (fen == null) ? new Perft(new ChessMatch(), bulk) : Perft.fromFen(fen, bulk);
+			long start = System.nanoTime();
+			long nodes = 0;
+			if (divide) {
+				Map<String, Long> moves = perft.divide(depth);
+				for (Map.Entry<String, Long> e : moves.entrySet()) {
+					System.out.println(e.getKey() + ": " + e.getValue());
+					nodes += e.getValue();
+				}
+				System.out.println();
+				System.out.println("Moves: " + moves.size());
+			} else {
+				nodes = perft.count(depth);
+			}
+			report(depth, nodes, System.nanoTime() - start);
+		} catch (ChessException e) {
+			System.out.println(e.getMessage());
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println("Usage: PerftProgram [depth] [--fen <fen>] [--divide] [--bulk] [--suite]");
+		}
+	}
+
+	private static void runSuite(int maxDepth, boolean bulk) {
+		boolean ok = true;
+		for (int i = 0; i < SUITE_FENS.length; i++) {
+			System.out.println(SUITE_FENS[i]);
+			for (int depth = 1; depth <= Math.min(maxDepth, SUITE_NODES[i].length); depth++) {
+				long start = System.nanoTime();
+				long nodes = Perft.fromFen(SUITE_FENS[i], bulk).count(depth);
+				long elapsed = System.nanoTime() - start;
+
+				boolean match = nodes == SUITE_NODES[i][depth - 1];
+				ok &= match;
+				System.out.print((match ? "  ok   " : "  FAIL ") + "expected " + SUITE_NODES[i][depth - 1] + ", ");
+				report(depth, nodes, elapsed);
+			}
+		}
+		System.out.println(ok ? "All positions match" : "Mismatches found");
+	}
+
+	private static void report(int depth, long nodes, long nanos) {
+		double seconds = nanos / 1e9;
+		System.out.printf("depth %d: %d nodes in %.3f s (%.0f nodes/s)%n", depth, nodes, seconds, nodes / Math.max(seconds, 1e-9));
+	}
+}
@@ -0,0 +1,129 @@
+package application;
+
+import chess.BitBoard;
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.San;
+import pgn.BatchReport;
+import pgn.BatchValidator;
+import pgn.GameResult;
+import pgn.PgnReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+public class PgnProgram {
+
+	private static final int MAX_GENERATED_PLIES = 160;
+
+	// replays every game of a PGN file: PgnProgram <file> [--illegal n] [--threads n], or writes random
+	// games to try it on: PgnProgram --generate <file> <games>
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: PgnProgram <file> [--illegal n] [--threads n] | --generate <file> <games>");
+			return;
+		}
+		if (args[0].equals("--generate")) {
+			generate(Paths.get(args[1]), Integer.parseInt(args[2]));
+			return;
+		}
+
+		int shown = 10;
+		int threads = 0;
+		for (int i = 1; i < args.length; i++) {
+			switch (args[i]) {
+				case "--illegal": shown = Integer.parseInt(args[++i]); break;
+				case "--threads": threads = Integer.parseInt(args[++i]); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		Path path = Paths.get(args[0]);
+		if (threads > 0) {
+			validate(path, threads, shown);
+			return;
+		}
+
+		long games = 0;
+		long illegal = 0;
+		long plies = 0;
+		long start = System.nanoTime();
+		try (PgnReader reader = new PgnReader(path)) {
+			GameResult result;
+			while ((result = reader.next()) != null) {
+				games++;
+				plies += result.getPlies();
+				if (!result.isLegal() && illegal++ < shown) System.out.println(result);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		Runtime runtime = Runtime.getRuntime();
+		System.out.printf("%d games, %d legal, %d illegal, %d plies%n", games, games - illegal, illegal, plies);
+		System.out.printf("%.2f s, %.0f games/s, %.0f plies/s, %.1f MB/s%n", seconds, games / seconds, plies / seconds,
+				Files.size(path) / seconds / (1 << 20));
+		System.out.printf("heap in use %d MB%n", (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+	}
+
+	// the whole file split between workers, with a report of the illegal games at the end
+	private static void validate(Path path, int threads, int shown) throws IOException {
+		BatchReport report = BatchValidator.validate(path, threads);
+		List<GameResult> illegal = report.getIllegalGames();
+		for (int i = 0; i < Math.min(shown, illegal.size()); i++) {
+			GameResult result = illegal.get(i);
+			System.out.println("illegal move " + result.getIllegalMove() + " at byte " + result.getIllegalOffset() + " in the game at byte " + result.getOffset());
+		}
+
+		double seconds = report.getNanos() / 1e9;
+		System.out.printf("%d games, %d legal, %d illegal, %d plies%n", report.getGames(), report.getLegalGames(), illegal.size(), report.getPlies());
+		System.out.printf("%d threads, %.2f s, %.0f games/s, %.1f MB/s%n", threads, seconds, report.getGamesPerSecond(),
+				Files.size(path) / seconds / (1 << 20));
+	}
+
+	private static void generate(Path path, int games) throws IOException {
+		Random random = new Random(1);
+		BitBoard board = new BitBoard();
+		MoveList moves = new MoveList();
+		MoveList scratch = new MoveList();
+
+		try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+			for (int game = 1; game <= games; game++) {
+				Fen.parse(Fen.INITIAL, board);
+				StringBuilder movetext = new StringBuilder(1024);
+				int ply = 0;
+				while (ply < MAX_GENERATED_PLIES && MoveGenerator.hasLegalMove(board, moves)) {
+					if (ply % 2 == 0) movetext.append(ply / 2 + 1).append(". ");
+					int move = moves.get(random.nextInt(moves.size()));
+					San.append(board, move, scratch, movetext).append(' ');
+					board.makeMove(move);
+					ply++;
+				}
+
+				String result = "*";
+				if (!MoveGenerator.hasLegalMove(board, moves)) {
+					if (!board.inCheck(board.getSideToMove())) result = "1/2-1/2";
+					else result = (board.getSideToMove() == BitBoard.WHITE) ? "0-1" : "1-0";
+				}
+				movetext.append(result);
+
+				out.write("[Event \"Random game " + game + "\"]\n[Result \"" + result + "\"]\n\n");
+				// movetext lines of at most 80 characters, as the export format asks
+				int from = 0;
+				while (from < movetext.length()) {
+					int to = Math.min(from + 80, movetext.length());
+					if (to < movetext.length()) to = movetext.lastIndexOf(" ", to);
+					out.append(movetext, from, to).append('\n');
+					from = to + 1;
+				}
+				out.write('\n');
+			}
+		}
+	}
+}
@@ -1,18 +1,46 @@
 package application;
 
+import archive.GameWriter;
+import book.PolyglotBook;
+import book.PolyglotKey;
+import chess.BitBoard;
 import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Program {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		String bookFile = null;
+		String keysFile = null;
+		String recordFile = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--book": bookFile = args[++i]; break;
+				case "--keys": keysFile = args[++i]; break;
+				case "--record": recordFile = args[++i]; break;
+				default: throw new IllegalArgumentException("Usage: Program [--book <file.bin> [--keys <random64 table>]] [--record <games file>]");
+			}
+		}
+		if (bookFile == null && keysFile != null) throw new IllegalArgumentException("--keys only goes with --book");
+
+		// books are keyed with the standard Polyglot numbers unless another table is given
+		PolyglotKey keys = (keysFile == null) ? PolyglotKey.standard() : PolyglotKey.load(Paths.get(keysFile));
+		PolyglotBook book = (bookFile == null) ? null : new PolyglotBook(Paths.get(bookFile), keys);
+		int[] bookMoves = new int[64];
+		int[] bookWeights = new int[64];
 
 		Scanner sc = new Scanner(System.in);
 		ChessMatch match = new ChessMatch();
+		GameWriter recorder = (recordFile == null) ? null : new GameWriter(Paths.get(recordFile));
+		if (recorder != null) recorder.record(match);
 
 		List<ChessPiece> captured = new ArrayList<>();
 
@@ -20,6 +48,7 @@ public class Program {
 			try {
 				UI.clearScreen();
 				UI.printMatch(match, captured);
+				if (book != null) printBookMoves(book, match.copyBitBoard(), bookMoves, bookWeights);
 				System.out.println();
 				System.out.print("Source: ");
 				ChessPosition origin = UI.readChessPosition(sc);
@@ -60,5 +89,27 @@ public class Program {
 			}
 		} UI.clearScreen();
 		UI.printMatch(match, captured);
+		if (book != null) book.close();
+		// the player still to move after the mate is the one who gave it
+		if (recorder != null) {
+			recorder.finish((match.getCurrentPlayer() == Color.WHITE) ? "1-0" : "0-1");
+			recorder.close();
+		}
+	}
+
+	private static void printBookMoves(PolyglotBook book, BitBoard position, int[] moves, int[] weights) {
+		int count = book.probe(position, moves, weights);
+		if (count == 0) return;
+
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			total += weights[i];
+		}
+		System.out.print("Book:");
+		for (int i = 0; i < count; i++) {
+			System.out.print(" " + Move.toString(moves[i]));
+			if (total > 0) System.out.printf(" (%d%%)", 100 * weights[i] / total);
+		}
+		System.out.println();
 	}
 }
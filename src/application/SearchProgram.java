@@ -0,0 +1,40 @@
+package application;
+
+import chess.ChessMatch;
+import engine.Search;
+import engine.SearchResult;
+import tablebase.Tablebases;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+public class SearchProgram {
+
+	public static void main(String[] args) throws IOException {
+		int depth = 6;
+		long millis = 0;
+		String fen = null;
+		String tablebases = null;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--time": millis = Long.parseLong(args[++i]); break;
+				case "--fen": fen = args[++i]; break;
+				case "--tablebases": tablebases = args[++i]; break;
+				default: depth = Integer.parseInt(args[i]);
+			}
+		}
+
+		Search search = new Search();
+		search.setListener(System.out::println);
+		if (tablebases != null) search.setTablebases(Tablebases.open(Paths.get(tablebases)));
+
+		ChessMatch match = (fen == null) ? new ChessMatch() : ChessMatch.fromFen(fen);
+		SearchResult result = (millis > 0) ? search.bestMove(match, Duration.ofMillis(millis)) : search.bestMove(match, depth);
+		System.out.println("bestmove " + result.getSource() + result.getTarget());
+		System.out.printf("hash %d MB, hit rate %.1f%%, fill rate %.1f%%%n", search.getTable().getMegabytes(),
+				100 * search.getTable().getHitRate(), 100 * search.getTable().getFillRate());
+		System.out.printf("pawn hash hit rate %.1f%%%n", 100 * search.getEvaluation().getPawnHitRate());
+	}
+}
@@ -0,0 +1,34 @@
+package application;
+
+import server.GameServer;
+
+import java.io.IOException;
+
+public class ServerProgram {
+
+	private static final int DEFAULT_PORT = 7777;
+	private static final long REPORT_MILLIS = 10000;
+
+	// hosts matches on the loopback interface until stopped: ServerProgram [--port n], reporting every ten
+	// seconds how many connections and matches are open and how fast moves come in. LoadProgram plays on it
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = DEFAULT_PORT;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--port")) port = Integer.parseInt(args[++i]);
+			else throw new IllegalArgumentException("Usage: ServerProgram [--port n]");
+		}
+
+		try (GameServer server = new GameServer(port)) {
+			server.start();
+			System.out.println("Listening on port " + server.getPort());
+			long moves = 0;
+			while (true) {
+				Thread.sleep(REPORT_MILLIS);
+				long now = server.getMoves();
+				System.out.printf("%d connections, %d matches, %.0f moves/s%n", server.getConnections(), server.getMatches(),
+						(now - moves) * 1000.0 / REPORT_MILLIS);
+				moves = now;
+			}
+		}
+	}
+}
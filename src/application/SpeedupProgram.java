@@ -0,0 +1,81 @@
+package application;
+
+import chess.ChessMatch;
+import chess.ChessPosition;
+import engine.ParallelSearch;
+import engine.TranspositionTable;
+
+public class SpeedupProgram {
+
+	// middlegame positions reached from the start position, in coordinate notation
+	private static final String[] SUITE = {
+			"e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7",
+			"d2d4 g8f6 c2c4 e7e6 b1c3 f8b4 e2e3 e8g8 f1d3 d7d5",
+			"e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6 b1c3 a7a6",
+			"c2c4 e7e5 b1c3 g8f6 g1f3 b8c6 g2g3 d7d5 c4d5 f6d5",
+			"e2e4 e7e6 d2d4 d7d5 b1c3 f8b4 e4e5 c7c5 a2a3 b4c3",
+			"d2d4 d7d5 c2c4 c7c6 g1f3 g8f6 b1c3 d5c4 a2a4 c8f5"
+	};
+
+	public static void main(String[] args) {
+		int depth = 7;
+		int megabytes = 64;
+		int[] threadCounts = {1, 2, 4, 8, 16};
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--hash": megabytes = Integer.parseInt(args[++i]); break;
+				case "--threads": threadCounts = parseList(args[++i]); break;
+				default: depth = Integer.parseInt(args[i]);
+			}
+		}
+
+		// warm up the JIT first, or the single thread run pays for compilation and flatters the others
+		try (ParallelSearch warmup = new ParallelSearch(1, new TranspositionTable(megabytes))) {
+			for (String line : SUITE) {
+				warmup.bestMove(play(line), Math.max(depth - 1, 1));
+			}
+		}
+
+		System.out.printf("Time to depth %d over %d positions, %d available processors%n", depth, SUITE.length, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%8s %10s %14s %12s %8s%n", "threads", "ms", "nodes", "nodes/s", "speedup");
+
+		double baseline = 0;
+		for (int threads : threadCounts) {
+			long nanos = 0;
+			long nodes = 0;
+			try (ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(megabytes))) {
+				for (String line : SUITE) {
+					search.getTable().clear();
+					ChessMatch match = play(line);
+
+					long start = System.nanoTime();
+					nodes += search.bestMove(match, depth).getNodes();
+					nanos += System.nanoTime() - start;
+				}
+			}
+
+			if (baseline == 0) baseline = nanos;
+			System.out.printf("%8d %10d %14d %12d %8.2f%n", threads, nanos / 1_000_000, nodes, nodes * 1_000_000_000L / nanos, baseline / nanos);
+		}
+	}
+
+	private static ChessMatch play(String line) {
+		ChessMatch match = new ChessMatch();
+		for (String move : line.split(" ")) {
+			ChessPosition source = new ChessPosition(move.charAt(0), move.charAt(1) - '0');
+			ChessPosition target = new ChessPosition(move.charAt(2), move.charAt(3) - '0');
+			match.performMove(source, target);
+		}
+		return match;
+	}
+
+	private static int[] parseList(String list) {
+		String[] values = list.split(",");
+		int[] result = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = Integer.parseInt(values[i]);
+		}
+		return result;
+	}
+}
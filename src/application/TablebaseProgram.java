@@ -0,0 +1,80 @@
+package application;
+
+import chess.BitBoard;
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.San;
+import tablebase.Tablebase;
+import tablebase.TablebaseGenerator;
+import tablebase.Tablebases;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TablebaseProgram {
+
+	// generates endgames into a directory: TablebaseProgram <directory> --generate KQK KRKP ... [--threads n],
+	// or shows what the tables say about a position and each of its moves: TablebaseProgram <directory> --probe <fen>
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: TablebaseProgram <directory> --generate <endgame>... [--threads n] | --probe <fen>");
+			return;
+		}
+		Path directory = Paths.get(args[0]);
+		if (args[1].equals("--probe")) {
+			probe(directory, args[2]);
+			return;
+		}
+		if (!args[1].equals("--generate")) throw new IllegalArgumentException("Unknown option " + args[1]);
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> endgames = new ArrayList<>();
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+			else endgames.add(args[i]);
+		}
+
+		long start = System.nanoTime();
+		try (TablebaseGenerator generator = new TablebaseGenerator(directory, threads)) {
+			generator.setListener(System.out::println);
+			for (String endgame : endgames) {
+				generator.generate(endgame);
+			}
+		}
+		System.out.printf("%d threads, %.1f s%n", threads, (System.nanoTime() - start) / 1e9);
+	}
+
+	private static void probe(Path directory, String fen) throws IOException {
+		BitBoard b = Fen.parse(fen);
+		try (Tablebases tables = Tablebases.open(directory)) {
+			int value = tables.probe(b);
+			if (value == Tablebase.NOT_FOUND) {
+				System.out.println("not in the tables " + tables.getSignatures());
+				return;
+			}
+			System.out.println(describe(value));
+
+			// each move's value is the opponent's
+			MoveList list = new MoveList();
+			MoveGenerator.generateLegal(b, list);
+			for (int i = 0; i < list.size(); i++) {
+				int move = list.get(i);
+				String san = San.toSan(b, move);
+				b.makeMove(move);
+				int after = tables.probe(b);
+				b.undoMove();
+				System.out.println("  " + san + ": " + ((after == Tablebase.NOT_FOUND) ? "not in the tables" : "opponent " + describe(after)));
+			}
+		}
+	}
+
+	private static String describe(int value) {
+		if (Tablebase.isWin(value)) return "wins, mate in " + Tablebase.moves(value);
+		if (Tablebase.isLoss(value)) return (Tablebase.moves(value) == 0) ? "is mated" : "loses, mated in " + Tablebase.moves(value);
+		return "draws";
+	}
+}
@@ -0,0 +1,33 @@
+package archive;
+
+// the binary game format. After an eight-byte magic number come the games, each a header and one 16-bit
+// move per ply, then an index of every game's offset and a trailer with the index offset and game count.
+// Numbers are big-endian. A game header is the plies (16 bits), the result (8), flags (8), then white's
+// and black's ratings (16 each, 0 when unknown) and, for a game with its own start, the FEN (length in
+// 8 bits, then ASCII). A move is its origin, target and promotion packed as in Move, without the flags,
+// which follow from the position
+final class GameFormat {
+
+	static final byte[] MAGIC = {'C', 'H', 'E', 'S', 'S', 'G', 'R', '1'};
+	static final int HEADER_SIZE = 8;
+	static final int TRAILER_SIZE = 16;
+
+	static final int GAME_HEADER_SIZE = 8;
+	static final int FLAG_START_POSITION = 1;
+	static final int MAX_PLIES = 0xFFFF;
+	static final int MAX_FEN = 0xFF;
+	// no game takes more room than this
+	static final int MAX_GAME_SIZE = GAME_HEADER_SIZE + 1 + MAX_FEN + 2 * MAX_PLIES;
+
+	static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+	private GameFormat() {
+	}
+
+	static int resultCode(String result) {
+		for (int i = 0; i < RESULTS.length; i++) {
+			if (RESULTS[i].equals(result)) return i;
+		}
+		throw new IllegalArgumentException("Invalid result: " + result);
+	}
+}
@@ -0,0 +1,183 @@
+package archive;
+
+import chess.BitBoard;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// reads a file of the binary game format through memory mappings of 1 GB each. Every mapping reaches a
+// game's worth past its gigabyte, so a game, or an index entry, is always read from a single mapping.
+// Replaying makes the recorded moves straight on a board: they were legal when recorded, so only enough
+// is checked to catch a damaged file
+public class GameReader implements AutoCloseable {
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	private static final String[] PROMOTIONS = {null, "N", "B", "R", "Q"};
+	private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+	static {
+		for (int square = 0; square < 64; square++) {
+			POSITIONS[square] = new ChessPosition((char) ('a' + BitBoard.column(square)), 8 - BitBoard.row(square));
+		}
+	}
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long indexOffset;
+	private final long games;
+	// copied rather than parsed for each game from the initial position
+	private final BitBoard initial = Fen.parse(Fen.INITIAL);
+
+	public GameReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				long length = Math.min(size - start, (1L << SEGMENT_SHIFT) + GameFormat.MAX_GAME_SIZE);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+
+			byte[] magic = new byte[GameFormat.HEADER_SIZE];
+			if (size >= GameFormat.HEADER_SIZE + GameFormat.TRAILER_SIZE) segments[0].get(0, magic);
+			if (!Arrays.equals(magic, GameFormat.MAGIC)) throw new ChessException("Not a game file: " + path);
+			indexOffset = getLong(size - GameFormat.TRAILER_SIZE);
+			games = getLong(size - GameFormat.TRAILER_SIZE + 8);
+			if (indexOffset < GameFormat.HEADER_SIZE || indexOffset + 8 * games != size - GameFormat.TRAILER_SIZE) {
+				throw new ChessException("Damaged game file: " + path);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public int getPlies(long game) {
+		return getShort(offset(game));
+	}
+
+	public String getResult(long game) {
+		int code = getByte(offset(game) + 2);
+		if (code >= GameFormat.RESULTS.length) throw new ChessException("Damaged game " + game);
+		return GameFormat.RESULTS[code];
+	}
+
+	// 0 when unknown
+	public int getWhiteElo(long game) {
+		return getShort(offset(game) + 4);
+	}
+
+	public int getBlackElo(long game) {
+		return getShort(offset(game) + 6);
+	}
+
+	// FEN of the position the game starts from, or null for the initial position
+	public String getStartPosition(long game) {
+		long offset = offset(game);
+		if ((getByte(offset + 3) & GameFormat.FLAG_START_POSITION) == 0) return null;
+		byte[] fen = new byte[getByte(offset + GameFormat.GAME_HEADER_SIZE)];
+		segment(offset).get((int) ((offset & SEGMENT_MASK) + GameFormat.GAME_HEADER_SIZE + 1), fen);
+		return new String(fen, StandardCharsets.US_ASCII);
+	}
+
+	// origin, target and promotion as Move packs them, without the flags
+	public int getMove(long game, int ply) {
+		long offset = offset(game);
+		if (ply < 0 || ply >= getShort(offset)) throw new IndexOutOfBoundsException("Ply " + ply + " of game " + game);
+		return getShort(movesOffset(offset) + 2L * ply);
+	}
+
+	// sets the board to the game's final position
+	public void replay(long game, BitBoard board) {
+		replay(game, board, null);
+	}
+
+	// plays the game on the board from its start, showing the visitor every position on the way
+	public void replay(long game, BitBoard board, PositionVisitor visitor) {
+		long offset = offset(game);
+		MappedByteBuffer segment = segment(offset);
+		int base = (int) (offset & SEGMENT_MASK);
+		int plies = segment.getShort(base) & 0xFFFF;
+		if ((segment.get(base + 3) & GameFormat.FLAG_START_POSITION) == 0) {
+			board.copy(initial);
+		} else {
+			Fen.parse(getStartPosition(game), board);
+		}
+
+		int moves = base + (int) (movesOffset(offset) - offset);
+		for (int ply = 0; ply < plies; ply++) {
+			int packed = segment.getShort(moves + 2 * ply) & 0xFFFF;
+			int from = Move.from(packed);
+			int piece = board.pieceAt(from);
+			if (piece == BitBoard.NO_PIECE || BitBoard.colorOf(piece) != board.getSideToMove()) {
+				throw new ChessException("Damaged game " + game + " at ply " + ply);
+			}
+			int move = board.createMove(from, Move.to(packed), Move.promotion(packed));
+			if (visitor != null) visitor.visit(game, ply, board, move);
+			board.makeMove(move);
+		}
+		if (visitor != null) visitor.visit(game, plies, board, Move.NONE);
+	}
+
+	// the game replayed through a match, which checks every move, for playing on from where it ended
+	public ChessMatch toMatch(long game) {
+		String start = getStartPosition(game);
+		ChessMatch match = (start == null) ? new ChessMatch() : ChessMatch.fromFen(start);
+		int plies = getPlies(game);
+		for (int ply = 0; ply < plies; ply++) {
+			int move = getMove(game, ply);
+			match.performMove(POSITIONS[Move.from(move)], POSITIONS[Move.to(move)]);
+			// the match promotes to a queen by itself
+			int promotion = Move.promotion(move);
+			if (promotion != 0 && promotion != BitBoard.QUEEN) match.replacePromotedPiece(PROMOTIONS[promotion]);
+		}
+		return match;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private long offset(long game) {
+		if (game < 0 || game >= games) throw new IndexOutOfBoundsException("Game " + game + " of " + games);
+		return getLong(indexOffset + 8 * game);
+	}
+
+	private long movesOffset(long offset) {
+		if ((getByte(offset + 3) & GameFormat.FLAG_START_POSITION) == 0) return offset + GameFormat.GAME_HEADER_SIZE;
+		return offset + GameFormat.GAME_HEADER_SIZE + 1 + getByte(offset + GameFormat.GAME_HEADER_SIZE);
+	}
+
+	private MappedByteBuffer segment(long offset) {
+		return segments[(int) (offset >>> SEGMENT_SHIFT)];
+	}
+
+	private long getLong(long offset) {
+		return segment(offset).getLong((int) (offset & SEGMENT_MASK));
+	}
+
+	private int getShort(long offset) {
+		return segment(offset).getShort((int) (offset & SEGMENT_MASK)) & 0xFFFF;
+	}
+
+	private int getByte(long offset) {
+		return segment(offset).get((int) (offset & SEGMENT_MASK)) & 0xFF;
+	}
+}
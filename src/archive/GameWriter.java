@@ -0,0 +1,127 @@
+package archive;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.MatchListener;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// writes games in the binary game format as they are played. Set as the listener of a match, or of a
+// PgnReader, it collects the moves of one game, which write then adds to the file. The offsets go to a
+// file of their own until close appends them, so the writer's memory does not grow with the archive
+public class GameWriter implements MatchListener, AutoCloseable {
+
+	private final Path path;
+	private final Path indexPath;
+	private final DataOutputStream out;
+	private final DataOutputStream index;
+	private long position;
+	private long games;
+
+	private short[] moves = new short[256];
+	private int plies;
+	private ChessMatch match;
+	private String startPosition;
+
+	public GameWriter(Path path) throws IOException {
+		this.path = path;
+		indexPath = path.resolveSibling(path.getFileName() + ".index");
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+		index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath), 1 << 16));
+		out.write(GameFormat.MAGIC);
+		position = GameFormat.HEADER_SIZE;
+	}
+
+	// records the match's moves from its current position on, until finish
+	public void record(ChessMatch match) {
+		discard();
+		String fen = match.toFen();
+		startPosition = fen.equals(Fen.INITIAL) ? null : fen;
+		this.match = match;
+		match.setListener(this);
+	}
+
+	public void finish(String result) throws IOException {
+		finish(result, 0, 0);
+	}
+
+	// writes the recorded game and stops listening to its match
+	public void finish(String result, int whiteElo, int blackElo) throws IOException {
+		if (match == null) throw new IllegalStateException("No game is being recorded");
+		match.setListener(null);
+		match = null;
+		write(startPosition, result, whiteElo, blackElo);
+	}
+
+	// writes the moves collected so far as a game from the position, null meaning the initial one
+	public void write(String startPosition, String result, int whiteElo, int blackElo) throws IOException {
+		int code = GameFormat.resultCode(result);
+		byte[] fen = (startPosition == null) ? null : startPosition.getBytes(StandardCharsets.US_ASCII);
+		if (fen != null && fen.length > GameFormat.MAX_FEN) throw new IllegalArgumentException("FEN too long: " + startPosition);
+		if (whiteElo < 0 || whiteElo > 0xFFFF || blackElo < 0 || blackElo > 0xFFFF) throw new IllegalArgumentException("Invalid rating");
+
+		index.writeLong(position);
+		out.writeShort(plies);
+		out.writeByte(code);
+		out.writeByte((fen == null) ? 0 : GameFormat.FLAG_START_POSITION);
+		out.writeShort(whiteElo);
+		out.writeShort(blackElo);
+		position += GameFormat.GAME_HEADER_SIZE;
+		if (fen != null) {
+			out.writeByte(fen.length);
+			out.write(fen);
+			position += 1 + fen.length;
+		}
+		for (int i = 0; i < plies; i++) {
+			out.writeShort(moves[i]);
+		}
+		position += 2L * plies;
+		games++;
+		discard();
+	}
+
+	// forgets the moves collected so far
+	public void discard() {
+		plies = 0;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	@Override
+	public void moved(int from, int to) {
+		if (plies == GameFormat.MAX_PLIES) throw new IllegalStateException("Games are limited to " + GameFormat.MAX_PLIES + " plies");
+		if (plies == moves.length) moves = Arrays.copyOf(moves, 2 * plies);
+		moves[plies++] = (short) (from | (to << 6));
+	}
+
+	@Override
+	public void promoted(int type) {
+		if (plies == 0) throw new IllegalStateException("There is no move to promote in");
+		moves[plies - 1] = (short) ((moves[plies - 1] & 0xFFF) | (type << 12));
+	}
+
+	// appends the index and the trailer
+	@Override
+	public void close() throws IOException {
+		try {
+			index.close();
+			try (InputStream in = Files.newInputStream(indexPath)) {
+				in.transferTo(out);
+			}
+			out.writeLong(position);
+			out.writeLong(games);
+		} finally {
+			out.close();
+			Files.deleteIfExists(indexPath);
+		}
+	}
+}
@@ -0,0 +1,373 @@
+package archive;
+
+import chess.BitBoard;
+import chess.ChessException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// counts how often each position occurs across a game file, and in which games, in an open-addressing table
+// kept in a memory-mapped file, so it grows with the disk rather than the heap. A key's home slot is its top
+// bits, and with linear probing the table stays close to key order: a range of keys is a run of slots, and
+// a batch of keys sorted on those bits fills the table front to back. A slot holds the key, the occurrences,
+// the number of games and the latest game; earlier games are chained in a second file, which the positions
+// seen in a single game never touch. Games are numbered as in their file. Not thread-safe
+public class PositionIndex implements AutoCloseable {
+
+	// keys are compared unsigned, the order of their slots
+	public interface Visitor {
+
+		void visit(long key, int occurrences, int games);
+	}
+
+	private static final byte[] MAGIC = "CHESSPI1".getBytes(StandardCharsets.US_ASCII);
+	private static final String POSTINGS = ".games";
+	private static final String GROWING = ".grow";
+	// key, occurrences, games, latest game, first posting; the file header takes the place of one slot
+	private static final int SLOT_SIZE = 32;
+	// game, next posting
+	private static final int POSTING_SIZE = 16;
+	// the first mapping of the games file, which then doubles as the chains grow
+	private static final long FIRST_POSTINGS_MAP = 1L << 20;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	private static final int MIN_BITS = 16;
+	private static final int BATCH = 1 << 20;
+	private static final int BUCKET_BITS = 16;
+
+	private final Path path;
+	private final FileChannel postingsChannel;
+	private FileChannel channel;
+	private MappedByteBuffer[] segments;
+	private MappedByteBuffer[] postings = new MappedByteBuffer[0];
+	private int bits;
+	private long capacity;
+	private long size;
+	// postings are numbered from 1, 0 ends a chain
+	private long postingCount;
+
+	// the bulk insert's batch, and a second one to sort it into
+	private long[] keys;
+	private long[] games;
+	private long[] sortedKeys;
+	private long[] sortedGames;
+	private int batched;
+
+	// opens the index at the path, or creates an empty one; its games are kept next to it
+	public PositionIndex(Path path) throws IOException {
+		this.path = path;
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() == 0) {
+				bits = MIN_BITS;
+			} else {
+				MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), SLOT_SIZE));
+				byte[] magic = new byte[MAGIC.length];
+				if (header.capacity() == SLOT_SIZE) header.get(0, magic);
+				if (!Arrays.equals(magic, MAGIC)) throw new ChessException("Not a position index: " + path);
+				bits = header.getInt(8);
+				size = header.getLong(16);
+				postingCount = header.getLong(24);
+				if (bits < MIN_BITS || bits > 48 || channel.size() != ((1L << bits) + 1) * SLOT_SIZE || size < 0
+						|| size > (1L << bits) || postingCount < 0) {
+					throw new ChessException("Damaged position index: " + path);
+				}
+			}
+			capacity = 1L << bits;
+			postingsChannel = FileChannel.open(path.resolveSibling(path.getFileName() + POSTINGS), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		try {
+			if (postingCount > 0 && postingsChannel.size() < (postingCount + 1) * POSTING_SIZE) {
+				throw new ChessException("Damaged position index: " + path);
+			}
+			segments = map(channel, capacity);
+			writeHeader();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			postingsChannel.close();
+			throw e;
+		}
+	}
+
+	// the number of distinct positions
+	public long getPositions() {
+		return size;
+	}
+
+	// 0 when the position was never seen
+	public int getOccurrences(long key) {
+		flush();
+		long offset = slotOffset(find(key));
+		return segment(offset).getInt((int) (offset & SEGMENT_MASK) + 8);
+	}
+
+	// the number of games the position occurs in, counting a game once however often it repeats the position
+	public int getGames(long key) {
+		flush();
+		long offset = slotOffset(find(key));
+		return segment(offset).getInt((int) (offset & SEGMENT_MASK) + 12);
+	}
+
+	// fills the array with games the position occurs in, latest first, and returns how many it holds
+	public int getGames(long key, long[] into) {
+		flush();
+		long offset = slotOffset(find(key));
+		MappedByteBuffer segment = segment(offset);
+		int base = (int) (offset & SEGMENT_MASK);
+		if (segment.getInt(base + 8) == 0 || into.length == 0) return 0;
+		into[0] = segment.getLong(base + 16);
+		int count = 1;
+		for (long posting = segment.getLong(base + 24); posting != 0 && count < into.length; count++) {
+			long at = posting * POSTING_SIZE;
+			MappedByteBuffer postingSegment = postingSegment(at);
+			into[count] = postingSegment.getLong((int) (at & SEGMENT_MASK));
+			posting = postingSegment.getLong((int) (at & SEGMENT_MASK) + 8);
+		}
+		return count;
+	}
+
+	// shows the visitor every position with a key from first to last, both included, in table order
+	public void range(long first, long last, Visitor visitor) {
+		if (Long.compareUnsigned(first, last) > 0) return;
+		flush();
+		int shift = 64 - bits;
+		long mask = capacity - 1;
+		// the home slots of the range, then those its keys were pushed on to, up to the next empty slot
+		long homes = (last >>> shift) - (first >>> shift) + 1;
+		long slot = first >>> shift;
+		for (long scanned = 0; scanned < capacity; scanned++, slot = (slot + 1) & mask) {
+			long offset = slotOffset(slot);
+			MappedByteBuffer segment = segment(offset);
+			int base = (int) (offset & SEGMENT_MASK);
+			int occurrences = segment.getInt(base + 8);
+			if (occurrences == 0) {
+				if (scanned >= homes) return;
+				continue;
+			}
+			long key = segment.getLong(base);
+			if (Long.compareUnsigned(key, first) >= 0 && Long.compareUnsigned(key, last) <= 0) {
+				visitor.visit(key, occurrences, segment.getInt(base + 12));
+			}
+		}
+	}
+
+	// adds one occurrence of the position in the game. A game's positions are expected together, or at least
+	// after those of the games before it, for it to be counted once
+	public void add(long key, long game) {
+		flush();
+		insert(key, game);
+	}
+
+	// replays the games from first up to end, exclusive, adding every position on the way, and returns how many
+	// were added. Positions are gathered into batches that are sorted on their home slots before going in
+	public long addGames(GameReader reader, long first, long end) {
+		if (keys == null) {
+			keys = new long[BATCH];
+			games = new long[BATCH];
+			sortedKeys = new long[BATCH];
+			sortedGames = new long[BATCH];
+		}
+		BitBoard board = new BitBoard();
+		PositionVisitor visitor = (game, ply, b, move) -> {
+			if (batched == BATCH) flush();
+			keys[batched] = b.getKey();
+			games[batched++] = game;
+		};
+		long added = 0;
+		for (long game = first; game < end; game++) {
+			reader.replay(game, board, visitor);
+			added += reader.getPlies(game) + 1;
+		}
+		flush();
+		return added;
+	}
+
+	// writes the header, and forces the mappings to the disk
+	public void force() {
+		flush();
+		writeHeader();
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+		for (MappedByteBuffer segment : postings) {
+			if (segment != null) segment.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			force();
+		} finally {
+			channel.close();
+			postingsChannel.close();
+		}
+	}
+
+	// inserts the batch sorted on the top bits of the keys. The sort is a stable counting sort, so each
+	// position's games stay in order
+	private void flush() {
+		if (batched == 0) return;
+		int shift = 64 - BUCKET_BITS;
+		int[] starts = new int[(1 << BUCKET_BITS) + 1];
+		for (int i = 0; i < batched; i++) {
+			starts[(int) (keys[i] >>> shift) + 1]++;
+		}
+		for (int bucket = 1; bucket < starts.length; bucket++) {
+			starts[bucket] += starts[bucket - 1];
+		}
+		for (int i = 0; i < batched; i++) {
+			int at = starts[(int) (keys[i] >>> shift)]++;
+			sortedKeys[at] = keys[i];
+			sortedGames[at] = games[i];
+		}
+		int count = batched;
+		batched = 0;
+		// grown for the whole batch first: the sorted keys would otherwise crowd the front of a table that is
+		// still below its load
+		while ((size + count) * 4 >= capacity * 3) {
+			grow();
+		}
+		for (int i = 0; i < count; i++) {
+			insert(sortedKeys[i], sortedGames[i]);
+		}
+	}
+
+	private void insert(long key, long game) {
+		if (size * 4 >= capacity * 3) grow();
+		long offset = slotOffset(find(key));
+		MappedByteBuffer segment = segment(offset);
+		int base = (int) (offset & SEGMENT_MASK);
+		int occurrences = segment.getInt(base + 8);
+		if (occurrences == 0) {
+			segment.putLong(base, key);
+			segment.putInt(base + 8, 1);
+			segment.putInt(base + 12, 1);
+			segment.putLong(base + 16, game);
+			segment.putLong(base + 24, 0);
+			size++;
+			return;
+		}
+		if (occurrences < Integer.MAX_VALUE) segment.putInt(base + 8, occurrences + 1);
+		long latest = segment.getLong(base + 16);
+		if (latest == game) return;
+
+		// the latest game goes to the head of the chain
+		long posting = ++postingCount;
+		long at = posting * POSTING_SIZE;
+		MappedByteBuffer postingSegment = postingSegment(at);
+		postingSegment.putLong((int) (at & SEGMENT_MASK), latest);
+		postingSegment.putLong((int) (at & SEGMENT_MASK) + 8, segment.getLong(base + 24));
+		segment.putLong(base + 24, posting);
+		segment.putLong(base + 16, game);
+		segment.putInt(base + 12, segment.getInt(base + 12) + 1);
+	}
+
+	// the slot holding the key, or the empty one where it would go
+	private long find(long key) {
+		long mask = capacity - 1;
+		for (long slot = key >>> (64 - bits); ; slot = (slot + 1) & mask) {
+			long offset = slotOffset(slot);
+			MappedByteBuffer segment = segment(offset);
+			int base = (int) (offset & SEGMENT_MASK);
+			if (segment.getInt(base + 8) == 0 || segment.getLong(base) == key) return slot;
+		}
+	}
+
+	// rehashes into a table twice the size, built next to this one and then moved over it. The slots are
+	// copied across in order, so the new table is written front to back as well
+	private void grow() {
+		Path growing = path.resolveSibling(path.getFileName() + GROWING);
+		try {
+			Files.deleteIfExists(growing);
+			FileChannel grown = FileChannel.open(growing, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			MappedByteBuffer[] old = segments;
+			long oldCapacity = capacity;
+			try {
+				segments = map(grown, capacity << 1);
+			} catch (IOException | RuntimeException e) {
+				grown.close();
+				throw e;
+			}
+			bits++;
+			capacity <<= 1;
+			for (long slot = 0; slot < oldCapacity; slot++) {
+				long offset = slotOffset(slot);
+				MappedByteBuffer segment = old[(int) (offset >>> SEGMENT_SHIFT)];
+				int base = (int) (offset & SEGMENT_MASK);
+				if (segment.getInt(base + 8) == 0) continue;
+				long target = slotOffset(find(segment.getLong(base)));
+				MappedByteBuffer to = segment(target);
+				int toBase = (int) (target & SEGMENT_MASK);
+				for (int i = 0; i < SLOT_SIZE; i += 8) {
+					to.putLong(toBase + i, segment.getLong(base + i));
+				}
+			}
+			writeHeader();
+			Files.move(growing, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			channel.close();
+			channel = grown;
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot grow position index " + path, e);
+		}
+	}
+
+	private void writeHeader() {
+		segments[0].put(0, MAGIC);
+		segments[0].putInt(8, bits);
+		segments[0].putLong(16, size);
+		segments[0].putLong(24, postingCount);
+	}
+
+	// maps a table of the capacity, or just the header with none
+	private static MappedByteBuffer[] map(FileChannel channel, long capacity) throws IOException {
+		long length = (capacity + 1) * SLOT_SIZE;
+		MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+		for (int i = 0; i < mapped.length; i++) {
+			long start = (long) i << SEGMENT_SHIFT;
+			mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(length - start, 1L << SEGMENT_SHIFT));
+		}
+		return mapped;
+	}
+
+	private static long slotOffset(long slot) {
+		return (slot + 1) * SLOT_SIZE;
+	}
+
+	private MappedByteBuffer segment(long offset) {
+		return segments[(int) (offset >>> SEGMENT_SHIFT)];
+	}
+
+	// the games file is mapped in segments of up to a gigabyte, as the chains reach into it. Mapping
+	// extends the file, so a segment's mapping starts small and doubles when a posting lies beyond it
+	private MappedByteBuffer postingSegment(long offset) {
+		int index = (int) (offset >>> SEGMENT_SHIFT);
+		long needed = (offset & SEGMENT_MASK) + POSTING_SIZE;
+		if (index >= postings.length) postings = Arrays.copyOf(postings, index + 1);
+		if (postings[index] == null || postings[index].capacity() < needed) {
+			long length = (postings[index] == null) ? FIRST_POSTINGS_MAP : postings[index].capacity();
+			while (length < needed) {
+				length *= 2;
+			}
+			try {
+				postings[index] = postingsChannel.map(FileChannel.MapMode.READ_WRITE, (long) index << SEGMENT_SHIFT,
+						Math.min(length, 1L << SEGMENT_SHIFT));
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot map the games of position index " + path, e);
+			}
+		}
+		return postings[index];
+	}
+}
@@ -0,0 +1,10 @@
+package archive;
+
+import chess.BitBoard;
+
+// sees every position of a replayed game: before each move, with the move about to be made, and after
+// the last one with Move.NONE. The board must be left as it was given
+public interface PositionVisitor {
+
+	void visit(long game, int ply, BitBoard board, int move);
+}
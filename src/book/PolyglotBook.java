@@ -0,0 +1,143 @@
+package book;
+
+import chess.BitBoard;
+import chess.ChessException;
+import chess.MoveGenerator;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// a Polyglot opening book, mapped rather than read, so a book of any size costs no heap and only the
+// pages a lookup touches are ever loaded. Entries are 16 big-endian bytes sorted by key: the position's
+// Polyglot key, the move, its weight and a learning field nobody uses
+public class PolyglotBook implements AutoCloseable {
+
+	private static final int ENTRY_SIZE = 16;
+	// a whole number of entries, so none is split between two mappings
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final PolyglotKey keys;
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long entries;
+
+	public PolyglotBook(Path path, PolyglotKey keys) throws IOException {
+		this.keys = keys;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size % ENTRY_SIZE != 0) throw new ChessException("Not a Polyglot book: " + path);
+			entries = size / ENTRY_SIZE;
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << SEGMENT_SHIFT));
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	// the legal book moves of the position and their weights, as many as the arrays hold; returns how
+	// many were written. Nothing is allocated, so the arrays can be reused from one probe to the next
+	public int probe(BitBoard b, int[] moves, int[] weights) {
+		long key = keys.of(b);
+		int count = 0;
+		for (long i = first(key); i < entries && key(i) == key && count < moves.length; i++) {
+			int move = decode(b, entryMove(i));
+			if (move == Move.NONE) continue;
+			moves[count] = move;
+			weights[count] = entryWeight(i);
+			count++;
+		}
+		return count;
+	}
+
+	// a book move chosen with probability proportional to its weight, or Move.NONE when the position is
+	// not in the book. The random number decides which, so the caller controls the variety
+	public int pick(BitBoard b, long random) {
+		long key = keys.of(b);
+		long first = first(key);
+		long total = 0;
+		int fallback = Move.NONE;
+		for (long i = first; i < entries && key(i) == key; i++) {
+			int move = decode(b, entryMove(i));
+			if (move == Move.NONE) continue;
+			total += entryWeight(i);
+			if (fallback == Move.NONE) fallback = move;
+		}
+		// weights of zero mean the book has no preference among its moves
+		if (total == 0) return fallback;
+
+		long target = Long.remainderUnsigned(random, total);
+		for (long i = first; i < entries && key(i) == key; i++) {
+			int move = decode(b, entryMove(i));
+			if (move == Move.NONE) continue;
+			target -= entryWeight(i);
+			if (target < 0) return move;
+		}
+		return fallback;
+	}
+
+	// the first entry whose key is not below the given one, keys compared as unsigned numbers
+	private long first(long key) {
+		long low = 0;
+		long high = entries;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(key(middle), key) < 0) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+
+	private long key(long entry) {
+		long offset = entry * ENTRY_SIZE;
+		return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+	}
+
+	private int entryMove(long entry) {
+		long offset = entry * ENTRY_SIZE + 8;
+		return segments[(int) (offset >>> SEGMENT_SHIFT)].getShort((int) (offset & SEGMENT_MASK)) & 0xFFFF;
+	}
+
+	private int entryWeight(long entry) {
+		long offset = entry * ENTRY_SIZE + 10;
+		return segments[(int) (offset >>> SEGMENT_SHIFT)].getShort((int) (offset & SEGMENT_MASK)) & 0xFFFF;
+	}
+
+	// Polyglot packs the target, the origin and the promotion (knight 1 to queen 4, as here) into 16 bits,
+	// with squares counted from a1. Castling is written as the king taking its own rook. Moves that are
+	// not legal in the position, as a key collision would give, come out as Move.NONE
+	private static int decode(BitBoard b, int polyglot) {
+		int to = (polyglot & 63) ^ 56;
+		int from = ((polyglot >>> 6) & 63) ^ 56;
+		int promotion = (polyglot >>> 12) & 7;
+
+		int piece = b.pieceAt(from);
+		if (piece == BitBoard.NO_PIECE || BitBoard.colorOf(piece) != b.getSideToMove()) return Move.NONE;
+		int target = b.pieceAt(to);
+		if (BitBoard.typeOf(piece) == BitBoard.KING && target != BitBoard.NO_PIECE && BitBoard.colorOf(target) == BitBoard.colorOf(piece)) {
+			to = from + ((to > from) ? 2 : -2);
+		}
+
+		int move = b.createMove(from, to, promotion);
+		return MoveGenerator.isLegal(b, move) ? move : Move.NONE;
+	}
+
+	// the mappings go with the buffers once they are unreachable; Java gives no way to drop them sooner
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,492 @@
+package chess;
+
+import java.util.Arrays;
+
+public class BitBoard {
+
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	public static final int NO_PIECE = -1;
+	public static final int NO_SQUARE = -1;
+
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+
+	// what fits next to the rest of a move's saved state
+	public static final int MAX_HALFMOVE_CLOCK = 0xFFFF;
+
+	// eight pawns promoted to the same piece on top of the original two
+	public static final int MAX_PIECES = 10;
+
+	// rights kept when a move starts or ends on each square
+	private static final int[] CASTLING_MASK = new int[64];
+
+	static {
+		Arrays.fill(CASTLING_MASK, 15);
+		CASTLING_MASK[square(7, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		CASTLING_MASK[square(7, 7)] &= ~WHITE_KINGSIDE;
+		CASTLING_MASK[square(7, 0)] &= ~WHITE_QUEENSIDE;
+		CASTLING_MASK[square(0, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+		CASTLING_MASK[square(0, 7)] &= ~BLACK_KINGSIDE;
+		CASTLING_MASK[square(0, 0)] &= ~BLACK_QUEENSIDE;
+	}
+
+	// squares are numbered row * 8 + column, so a8 is 0 and h1 is 63
+	private final long[] pieces = new long[12];
+	private final long[] colors = new long[2];
+	private long occupied;
+	private final int[] squares = new int[64];
+
+	// squares of each piece kind, filled densely; listIndex is each occupied square's slot in its list
+	private final int[][] pieceList = new int[12][MAX_PIECES];
+	private final int[] pieceCount = new int[12];
+	private final int[] listIndex = new int[64];
+	private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+
+	// running sums of PieceSquareTables over the pieces on the board
+	private int middlegameScore;
+	private int endgameScore;
+	private int phase;
+
+	private int sideToMove = WHITE;
+	private int castlingRights;
+	private int enPassantSquare = NO_SQUARE;
+	// moves since the last capture or pawn move, and the move number, which goes up after black moves
+	private int halfmoveClock;
+	private int fullmoveNumber = 1;
+	private long key;
+	// the same Zobrist keys over the pawns alone, for caching pawn structure
+	private long pawnKey;
+
+	// one entry per move made: the move, what it captured, the previous state and key
+	private int[] moveHistory = new int[256];
+	private int[] stateHistory = new int[256];
+	private long[] keyHistory = new long[256];
+	private int historySize;
+
+	public BitBoard() {
+		Arrays.fill(squares, NO_PIECE);
+	}
+
+	// independent copy of the position and its history, for callers that must not touch the original
+	public BitBoard(BitBoard other) {
+		copy(other);
+	}
+
+	// turns this board into an independent copy of the other, reusing its arrays
+	public void copy(BitBoard other) {
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		System.arraycopy(other.colors, 0, colors, 0, colors.length);
+		System.arraycopy(other.squares, 0, squares, 0, squares.length);
+		for (int i = 0; i < pieceList.length; i++) {
+			System.arraycopy(other.pieceList[i], 0, pieceList[i], 0, MAX_PIECES);
+		}
+		System.arraycopy(other.pieceCount, 0, pieceCount, 0, pieceCount.length);
+		System.arraycopy(other.listIndex, 0, listIndex, 0, listIndex.length);
+		System.arraycopy(other.kingSquares, 0, kingSquares, 0, kingSquares.length);
+		occupied = other.occupied;
+
+		middlegameScore = other.middlegameScore;
+		endgameScore = other.endgameScore;
+		phase = other.phase;
+
+		sideToMove = other.sideToMove;
+		castlingRights = other.castlingRights;
+		enPassantSquare = other.enPassantSquare;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+		key = other.key;
+		pawnKey = other.pawnKey;
+
+		if (moveHistory.length < other.historySize) {
+			moveHistory = new int[other.moveHistory.length];
+			stateHistory = new int[other.moveHistory.length];
+			keyHistory = new long[other.moveHistory.length];
+		}
+		System.arraycopy(other.moveHistory, 0, moveHistory, 0, other.historySize);
+		System.arraycopy(other.stateHistory, 0, stateHistory, 0, other.historySize);
+		System.arraycopy(other.keyHistory, 0, keyHistory, 0, other.historySize);
+		historySize = other.historySize;
+	}
+
+	public static int piece(int color, int type) {
+		return color * 6 + type;
+	}
+
+	public static int colorOf(int piece) {
+		return piece < 6 ? WHITE : BLACK;
+	}
+
+	public static int typeOf(int piece) {
+		return piece < 6 ? piece : piece - 6;
+	}
+
+	public static int square(int row, int column) {
+		return (row << 3) | column;
+	}
+
+	public static int row(int square) {
+		return square >>> 3;
+	}
+
+	public static int column(int square) {
+		return square & 7;
+	}
+
+	public static int colorIndex(Color color) {
+		return (color == Color.WHITE) ? WHITE : BLACK;
+	}
+
+	public long getPieces(int color, int type) {
+		return pieces[piece(color, type)];
+	}
+
+	public long getColorPieces(int color) {
+		return colors[color];
+	}
+
+	public long getOccupied() {
+		return occupied;
+	}
+
+	public int pieceAt(int square) {
+		return squares[square];
+	}
+
+	public int kingSquare(int color) {
+		return kingSquares[color];
+	}
+
+	public int pieceCount(int piece) {
+		return pieceCount[piece];
+	}
+
+	// square of the index-th piece of a kind; the order changes as pieces are removed
+	public int pieceSquare(int piece, int index) {
+		return pieceList[piece][index];
+	}
+
+	// material and piece-square score for white, minus black's
+	public int getMiddlegameScore() {
+		return middlegameScore;
+	}
+
+	public int getEndgameScore() {
+		return endgameScore;
+	}
+
+	public int getPhase() {
+		return phase;
+	}
+
+	public int getSideToMove() {
+		return sideToMove;
+	}
+
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+	public int getFullmoveNumber() {
+		return fullmoveNumber;
+	}
+
+	public long getKey() {
+		return key;
+	}
+
+	public long getPawnKey() {
+		return pawnKey;
+	}
+
+	public void changeSide() {
+		sideToMove ^= 1;
+		key ^= Zobrist.side();
+	}
+
+	public void setCastlingRights(int rights) {
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+		castlingRights = rights;
+	}
+
+	public void setHalfmoveClock(int halfmoveClock) {
+		if (halfmoveClock < 0 || halfmoveClock > MAX_HALFMOVE_CLOCK) throw new IllegalArgumentException("Invalid halfmove clock: " + halfmoveClock);
+		this.halfmoveClock = halfmoveClock;
+	}
+
+	public void setFullmoveNumber(int fullmoveNumber) {
+		if (fullmoveNumber < 1) throw new IllegalArgumentException("Invalid fullmove number: " + fullmoveNumber);
+		this.fullmoveNumber = fullmoveNumber;
+	}
+
+	// back to the empty board with white to move and no history, so one board can be filled over and over
+	public void clear() {
+		while (occupied != 0) {
+			squares[Long.numberOfTrailingZeros(occupied)] = NO_PIECE;
+			occupied &= occupied - 1;
+		}
+		Arrays.fill(pieces, 0);
+		Arrays.fill(colors, 0);
+		Arrays.fill(pieceCount, 0);
+		Arrays.fill(kingSquares, NO_SQUARE);
+		middlegameScore = 0;
+		endgameScore = 0;
+		phase = 0;
+
+		sideToMove = WHITE;
+		castlingRights = 0;
+		enPassantSquare = NO_SQUARE;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		key = 0;
+		pawnKey = 0;
+		historySize = 0;
+	}
+
+	// most moves leave the rights alone, and then the key is left alone too
+	private void updateCastlingRights(int origin, int target) {
+		int rights = castlingRights & CASTLING_MASK[origin] & CASTLING_MASK[target];
+		if (rights != castlingRights) setCastlingRights(rights);
+	}
+
+	public void setEnPassantSquare(int square) {
+		if (enPassantSquare != NO_SQUARE) key ^= Zobrist.enPassant(column(enPassantSquare));
+		enPassantSquare = square;
+		if (enPassantSquare != NO_SQUARE) key ^= Zobrist.enPassant(column(enPassantSquare));
+	}
+
+	// whether the position already occurred with the same side to move
+	public boolean isRepetition() {
+		for (int i = historySize - 2; i >= 0; i -= 2) {
+			if (keyHistory[i] == key) return true;
+		}
+		return false;
+	}
+
+	public int lastMove() {
+		return (historySize == 0) ? Move.NONE : moveHistory[historySize - 1];
+	}
+
+	// flags for a from/to pair of the current position, for callers that only know the squares
+	public int createMove(int from, int to, int promotion) {
+		int type = typeOf(squares[from]);
+		int flags = (squares[to] != NO_PIECE) ? Move.CAPTURE : 0;
+
+		if (type == PAWN) {
+			if (Math.abs(to - from) == 16) flags |= Move.DOUBLE_PUSH;
+			else if (column(from) != column(to) && squares[to] == NO_PIECE) flags |= Move.EN_PASSANT | Move.CAPTURE;
+		}
+		if (type == KING && Math.abs(to - from) == 2) flags |= Move.CASTLING;
+
+		return Move.of(from, to, promotion, flags);
+	}
+
+	public void makeMove(int move) {
+		if (historySize == moveHistory.length) {
+			moveHistory = Arrays.copyOf(moveHistory, historySize * 2);
+			stateHistory = Arrays.copyOf(stateHistory, historySize * 2);
+			keyHistory = Arrays.copyOf(keyHistory, historySize * 2);
+		}
+
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int us = sideToMove;
+		int piece = squares[from];
+		keyHistory[historySize] = key;
+
+		int captured = NO_PIECE;
+		if (Move.isEnPassant(move)) {
+			captured = removePiece(to + ((us == WHITE) ? 8 : -8));
+		} else if (squares[to] != NO_PIECE) {
+			captured = removePiece(to);
+		}
+
+		moveHistory[historySize] = move;
+		stateHistory[historySize] = (halfmoveClock << 15) | ((captured + 1) << 11) | (castlingRights << 7) | (enPassantSquare + 1);
+		historySize++;
+
+		if (Move.promotion(move) != 0) {
+			removePiece(from);
+			putPiece(piece(us, Move.promotion(move)), to);
+		} else {
+			movePiece(piece, from, to);
+		}
+
+		if (Move.isCastling(move)) {
+			//castling rook
+			if (to > from) {
+				movePiece(piece(us, ROOK), from + 3, from + 1);
+			} else {
+				movePiece(piece(us, ROOK), from - 4, from - 1);
+			}
+		}
+
+		updateCastlingRights(from, to);
+
+		int enPassant = NO_SQUARE;
+		if (Move.isDoublePush(move)) {
+			int square = (from + to) >>> 1;
+			// only part of the position when an opponent pawn can actually capture
+			if ((Attacks.pawn(us, square) & pieces[piece(us ^ 1, PAWN)]) != 0) enPassant = square;
+		}
+		setEnPassantSquare(enPassant);
+
+		if (typeOf(piece) == PAWN || captured != NO_PIECE) halfmoveClock = 0;
+		else if (halfmoveClock < MAX_HALFMOVE_CLOCK) halfmoveClock++;
+		if (us == BLACK) fullmoveNumber++;
+		changeSide();
+	}
+
+	public void undoMove() {
+		historySize--;
+		int move = moveHistory[historySize];
+		int state = stateHistory[historySize];
+
+		int from = Move.from(move);
+		int to = Move.to(move);
+		sideToMove ^= 1;
+		int us = sideToMove;
+
+		if (Move.promotion(move) != 0) {
+			removePiece(to);
+			putPiece(piece(us, PAWN), from);
+		} else {
+			movePiece(squares[to], to, from);
+		}
+
+		int captured = ((state >>> 11) & 15) - 1;
+		if (captured != NO_PIECE) {
+			putPiece(captured, Move.isEnPassant(move) ? to + ((us == WHITE) ? 8 : -8) : to);
+		}
+
+		if (Move.isCastling(move)) {
+			//castling rook
+			if (to > from) {
+				movePiece(piece(us, ROOK), from + 1, from + 3);
+			} else {
+				movePiece(piece(us, ROOK), from - 1, from - 4);
+			}
+		}
+
+		castlingRights = (state >>> 7) & 15;
+		enPassantSquare = (state & 0x7F) - 1;
+		halfmoveClock = state >>> 15;
+		if (us == BLACK) fullmoveNumber--;
+		key = keyHistory[historySize];
+	}
+
+	// looks outwards from the square for each attacker pattern, cheapest first, and stops at the first hit
+	public boolean isSquareAttacked(int square, int byColor) {
+		if ((Attacks.knight(square) & pieces[piece(byColor, KNIGHT)]) != 0) return true;
+		if ((Attacks.pawn(byColor ^ 1, square) & pieces[piece(byColor, PAWN)]) != 0) return true;
+		if ((Attacks.king(square) & pieces[piece(byColor, KING)]) != 0) return true;
+
+		long queens = pieces[piece(byColor, QUEEN)];
+		long diagonal = (pieces[piece(byColor, BISHOP)] | queens) & Attacks.bishopRays(square);
+		if (diagonal != 0 && (Attacks.bishop(square, occupied) & diagonal) != 0) return true;
+
+		long straight = (pieces[piece(byColor, ROOK)] | queens) & Attacks.rookRays(square);
+		return straight != 0 && (Attacks.rook(square, occupied) & straight) != 0;
+	}
+
+	// every piece of the color attacking the square, with sliders blocked by the given occupancy
+	public long attackers(int square, int byColor, long occupied) {
+		long queens = pieces[piece(byColor, QUEEN)];
+		return (Attacks.knight(square) & pieces[piece(byColor, KNIGHT)])
+				| (Attacks.pawn(byColor ^ 1, square) & pieces[piece(byColor, PAWN)])
+				| (Attacks.king(square) & pieces[piece(byColor, KING)])
+				| (Attacks.bishop(square, occupied) & (pieces[piece(byColor, BISHOP)] | queens))
+				| (Attacks.rook(square, occupied) & (pieces[piece(byColor, ROOK)] | queens));
+	}
+
+	public boolean inCheck(int color) {
+		return isSquareAttacked(kingSquare(color), color ^ 1);
+	}
+
+	public void putPiece(int piece, int square) {
+		if (squares[square] != NO_PIECE) {
+			throw new IllegalStateException("Square " + square + " is already occupied");
+		}
+		if (pieceCount[piece] == MAX_PIECES) throw new IllegalStateException("Too many pieces of kind " + piece);
+
+		long bit = 1L << square;
+		pieces[piece] |= bit;
+		colors[colorOf(piece)] |= bit;
+		occupied |= bit;
+		squares[square] = piece;
+
+		listIndex[square] = pieceCount[piece];
+		pieceList[piece][pieceCount[piece]++] = square;
+		if (typeOf(piece) == KING) kingSquares[colorOf(piece)] = square;
+
+		middlegameScore += PieceSquareTables.middlegame(piece, square);
+		endgameScore += PieceSquareTables.endgame(piece, square);
+		phase += PieceSquareTables.phase(piece);
+		key ^= Zobrist.piece(piece, square);
+		if (typeOf(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, square);
+	}
+
+	public int removePiece(int square) {
+		int piece = squares[square];
+		if (piece == NO_PIECE) return NO_PIECE;
+
+		long bit = ~(1L << square);
+		pieces[piece] &= bit;
+		colors[colorOf(piece)] &= bit;
+		occupied &= bit;
+		squares[square] = NO_PIECE;
+
+		// the last piece of the list takes over the freed slot
+		int last = pieceList[piece][--pieceCount[piece]];
+		pieceList[piece][listIndex[square]] = last;
+		listIndex[last] = listIndex[square];
+		if (typeOf(piece) == KING) kingSquares[colorOf(piece)] = NO_SQUARE;
+
+		middlegameScore -= PieceSquareTables.middlegame(piece, square);
+		endgameScore -= PieceSquareTables.endgame(piece, square);
+		phase -= PieceSquareTables.phase(piece);
+		key ^= Zobrist.piece(piece, square);
+		if (typeOf(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, square);
+		return piece;
+	}
+
+	// the piece goes from its square to an empty one and keeps its slot in the piece list, which is
+	// cheaper than taking it off the board and putting it back
+	private void movePiece(int piece, int from, int to) {
+		long bits = (1L << from) | (1L << to);
+		pieces[piece] ^= bits;
+		colors[colorOf(piece)] ^= bits;
+		occupied ^= bits;
+		squares[from] = NO_PIECE;
+		squares[to] = piece;
+
+		int slot = listIndex[from];
+		pieceList[piece][slot] = to;
+		listIndex[to] = slot;
+		if (typeOf(piece) == KING) kingSquares[colorOf(piece)] = to;
+
+		middlegameScore += PieceSquareTables.middlegame(piece, to) - PieceSquareTables.middlegame(piece, from);
+		endgameScore += PieceSquareTables.endgame(piece, to) - PieceSquareTables.endgame(piece, from);
+		long zobrist = Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+		key ^= zobrist;
+		if (typeOf(piece) == PAWN) pawnKey ^= zobrist;
+	}
+}
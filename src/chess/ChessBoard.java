@@ -0,0 +1,17 @@
+package chess;
+
+import boardgame.Board;
+
+public class ChessBoard extends Board {
+
+	private BitBoard bitBoard;
+
+	public ChessBoard() {
+		super(8, 8);
+		bitBoard = new BitBoard();
+	}
+
+	public BitBoard getBitBoard() {
+		return bitBoard;
+	}
+}
@@ -7,28 +7,78 @@ import chess.pieces.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ChessMatch {
 
 	private int turn;
 	private Color currentPlayer;
 	private Board board;
+	private BitBoard bitBoard;
 	private boolean check;
 	private boolean checkMate;
-	private ChessPiece enPassantVulnerable;
 	private ChessPiece promoted;
 
-	private List<Piece> piecesOnTheBoard = new ArrayList<>();
 	private List<Piece> capturedPieces = new ArrayList<>();
 
+	private MoveList moves = new MoveList();
+
+	private MatchListener listener;
+
 	public ChessMatch() {
-		board = new Board(8, 8);
+		board = new ChessBoard();
+		bitBoard = ((ChessBoard) board).getBitBoard();
 		turn = 1;
 		currentPlayer = Color.WHITE;
 		check = false;
 		checkMate = false;
 		initialSetup();
+		bitBoard.setCastlingRights(BitBoard.WHITE_KINGSIDE | BitBoard.WHITE_QUEENSIDE | BitBoard.BLACK_KINGSIDE | BitBoard.BLACK_QUEENSIDE);
+	}
+
+	private ChessMatch(CharSequence fen) {
+		board = new ChessBoard();
+		bitBoard = ((ChessBoard) board).getBitBoard();
+		Fen.parse(fen, bitBoard);
+
+		long occupied = bitBoard.getOccupied();
+		while (occupied != 0) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			int piece = bitBoard.pieceAt(square);
+			Color color = (BitBoard.colorOf(piece) == BitBoard.WHITE) ? Color.WHITE : Color.BLACK;
+			board.placePiece(newPiece(BitBoard.typeOf(piece), color), new Position(BitBoard.row(square), BitBoard.column(square)));
+		}
+
+		currentPlayer = (bitBoard.getSideToMove() == BitBoard.WHITE) ? Color.WHITE : Color.BLACK;
+
+		turn = 2 * (bitBoard.getFullmoveNumber() - 1) + ((currentPlayer == Color.WHITE) ? 1 : 2);
+		check = testCheck(currentPlayer);
+		checkMate = testCheckMate(currentPlayer);
+		// a match mated by performMove stays on the winner's turn, so the winner is the current player here too
+		if (checkMate) {
+			turn--;
+			currentPlayer = opponent(currentPlayer);
+		}
+	}
+
+	// a match going on from the position, with its castling rights, en passant square and clocks
+	public static ChessMatch fromFen(CharSequence fen) {
+		return new ChessMatch(fen);
+	}
+
+	public String toFen() {
+		return Fen.toFen(bitBoard);
+	}
+
+	private ChessPiece newPiece(int type, Color color) {
+		switch (type) {
+			case BitBoard.PAWN: return new Pawn(board, color);
+			case BitBoard.KNIGHT: return new Knight(board, color);
+			case BitBoard.BISHOP: return new Bishop(board, color);
+			case BitBoard.ROOK: return new Rook(board, color);
+			case BitBoard.QUEEN: return new Queen(board, color);
+			default: return new King(board, color);
+		}
 	}
 
 	public int getTurn() {
@@ -41,10 +91,17 @@ public class ChessMatch {
 
 	public boolean getCheckMate() { return checkMate; }
 
-	public ChessPiece getEnPassantVulnerable() { return enPassantVulnerable; }
-
 	public ChessPiece getPromoted() { return promoted; }
 
+	public long getZobristKey() { return bitBoard.getKey(); }
+
+	BitBoard getBitBoard() { return bitBoard; }
+
+	public BitBoard copyBitBoard() { return new BitBoard(bitBoard); }
+
+	// told about each move from now on; null stops it
+	public void setListener(MatchListener listener) { this.listener = listener; }
+
 	public ChessPiece[][] getPieces() {
 		ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
 
@@ -69,48 +126,44 @@ public class ChessMatch {
 
 		validateOriginPosition(origin);
 		validateTargetPosition(origin, target);
-		Piece capturedPiece = makeMove(origin, target);
-
-		ChessPiece movedPiece = (ChessPiece) board.piece(target);
-
-		//promotion
-		promoted = null;
-		if (movedPiece instanceof Pawn) {
-			if ((movedPiece.getColor() == Color.WHITE && target.getRow() == 0) || (movedPiece.getColor() == Color.BLACK && target.getRow() == 7)) {
-				promoted = (ChessPiece) board.piece(target);
-				promoted = replacePromotedPiece("Q");
-			}
-		}
 
-		if (testCheck(currentPlayer)) {
-			undoMove(origin, target, capturedPiece);
+		// the target is a possible move of the piece, so it can only be missing from the legal moves by exposing the king
+		int from = BitBoard.square(origin.getRow(), origin.getColumn());
+		int to = BitBoard.square(target.getRow(), target.getColumn());
+		MoveGenerator.generateLegal(bitBoard, moves);
+		if (moves.find(from, to) == Move.NONE) {
 			throw new ChessException("You can't check yourself");
 		}
 
+		//promotion, to a queen until replacePromotedPiece says otherwise
+		boolean promotes = BitBoard.typeOf(bitBoard.pieceAt(from)) == BitBoard.PAWN && (target.getRow() == 0 || target.getRow() == 7);
+		Piece capturedPiece = makeMove(origin, target, promotes ? BitBoard.QUEEN : 0);
+
+		promoted = promotes ? (ChessPiece) board.piece(target) : null;
+
 		check = (testCheck(opponent(currentPlayer))) ? true : false;
 
 		if (testCheckMate(opponent(currentPlayer))) {
 			checkMate = true;
 		} else nextTurn();;
 
-		//en passant
-
-		if (movedPiece instanceof Pawn && (target.getRow() == origin.getRow() + 2 || target.getRow() == origin.getRow() - 2)) {
-			enPassantVulnerable = movedPiece;
-		} else enPassantVulnerable = null;
+		if (listener != null) {
+			listener.moved(from, to);
+			if (promoted != null) listener.promoted(BitBoard.QUEEN);
+		}
 
 		return (ChessPiece) capturedPiece;
 	}
 
-	private Piece makeMove(Position origin, Position target) {
+	Piece makeMove(Position origin, Position target, int promotion) {
+		bitBoard.makeMove(bitBoard.createMove(BitBoard.square(origin.getRow(), origin.getColumn()), BitBoard.square(target.getRow(), target.getColumn()), promotion));
+
 		ChessPiece p = (ChessPiece) board.removePiece(origin);
-		p.increaseMoveCount();
 		Piece captured = board.removePiece(target);
 
 		board.placePiece(p, target);
 
 		if (captured != null) {
-			piecesOnTheBoard.remove(captured);
 			capturedPieces.add(captured);
 		}
 
@@ -122,7 +175,6 @@ public class ChessMatch {
 
 			ChessPiece rook = (ChessPiece) board.removePiece(originT);
 			board.placePiece(rook, targetT);
-			rook.increaseMoveCount();
 		}
 
 		//castling queenside rook
@@ -133,7 +185,6 @@ public class ChessMatch {
 
 			ChessPiece rook = (ChessPiece) board.removePiece(originT);
 			board.placePiece(rook, targetT);
-			rook.increaseMoveCount();
 		}
 
 		//en passant
@@ -146,10 +197,14 @@ public class ChessMatch {
 				}
 				captured = board.removePiece(pawnPosition);
 				capturedPieces.add(captured);
-				piecesOnTheBoard.remove(captured);
 			}
 		}
 
+		if (promotion != 0) {
+			board.removePiece(target);
+			board.placePiece(newPiece(promotion, p.getColor()), target);
+		}
+
 		return captured;
 	}
 
@@ -158,72 +213,44 @@ public class ChessMatch {
 
 		if (!type.equals("B") && !type.equals("Q") && !type.equals("N") && !type.equals("R")) return promoted;
 
-		Position pos = promoted.getChessPosition().toPosition();
-		Piece p = board.removePiece(pos);
-		piecesOnTheBoard.remove(p);
-
 		ChessPiece newPiece = newPiece(type, promoted.getColor());
-		board.placePiece(newPiece, pos);
-		piecesOnTheBoard.add(newPiece);
+		Position position = promoted.getChessPosition().toPosition();
+
+		// the bit board keeps the promotion in its move history, so the move is made again with the new piece
+		int move = bitBoard.lastMove();
+		bitBoard.undoMove();
+		bitBoard.makeMove(bitBoard.createMove(Move.from(move), Move.to(move), newPiece.getType()));
+
+		board.removePiece(position);
+		board.placePiece(newPiece, position);
+		promoted = newPiece;
+
+		// check and mate were worked out with a queen on the square
+		boolean wasCheckMate = checkMate;
+		check = testCheck(opponent(newPiece.getColor()));
+		checkMate = testCheckMate(opponent(newPiece.getColor()));
+		if (wasCheckMate && !checkMate) {
+			nextTurn();
+		} else if (!wasCheckMate && checkMate) {
+			turn--;
+			currentPlayer = newPiece.getColor();
+		}
+
+		if (listener != null) listener.promoted(newPiece.getType());
 
 		return newPiece;
 	}
 
-	private ChessPiece newPiece (String type, Color color) {
+	ChessPiece newPiece (String type, Color color) {
 		if (type.equals("B")) return new Bishop(board, color);
 		if (type.equals("Q")) return new Queen(board, color);
 		if (type.equals("N")) return new Knight(board, color);
 		return new Rook(board, color);
 	}
 
-	private void undoMove(Position origin, Position target, Piece capturedPiece) {
-
-		ChessPiece p = (ChessPiece) board.removePiece(target);
-		p.decreaseMoveCount();
-		board.placePiece(p, origin);
-
-		if (capturedPiece != null) {
-			board.placePiece(capturedPiece, target);
-			capturedPieces.remove(capturedPiece);
-			piecesOnTheBoard.add(capturedPiece);
-		}
-
-		//castling kingside rook
-
-		if (p instanceof King && target.getColumn() == origin.getColumn() + 2) {
-			Position originT = new Position(origin.getRow(), origin.getColumn() + 3);
-			Position targetT = new Position(origin.getRow(), origin.getColumn() + 1);
-
-			ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-			board.placePiece(rook, originT);
-			rook.decreaseMoveCount();
-		}
-
-		//castling queenside rook
-
-		if (p instanceof King && target.getColumn() == origin.getColumn() - 2) {
-			Position originT = new Position(origin.getRow(), origin.getColumn() - 4);
-			Position targetT = new Position(origin.getRow(), origin.getColumn() - 1);
-
-			ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-			board.placePiece(rook, originT);
-			rook.decreaseMoveCount();
-		}
-
-		//en passant
-
-		if (p instanceof Pawn) {
-			if (origin.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerable) {
-
-				ChessPiece pawn = (ChessPiece) board.removePiece(target);
-
-				Position pawnPosition;
-				if (p.getColor() == Color.WHITE) { pawnPosition = new Position(3, target.getColumn()); } else {
-					pawnPosition = new Position(4, target.getColumn());
-				}
-				board.placePiece(pawn, pawnPosition);
-			}
-		}
+	private void placePiece(ChessPiece piece, Position position) {
+		board.placePiece(piece, position);
+		bitBoard.putPiece(BitBoard.piece(BitBoard.colorIndex(piece.getColor()), piece.getType()), BitBoard.square(position.getRow(), position.getColumn()));
 	}
 
 	private void validateOriginPosition(Position position) {
@@ -233,16 +260,17 @@ public class ChessMatch {
 
 		if (((ChessPiece)board.piece(position)).getColor() != currentPlayer) throw new ChessException("Such piece is not yours");
 
-		if (!board.piece(position).isThereAnyPossibleMove()) throw new ChessException("There is no possible move for this piece");
+		// the same targets the piece's possibleMoves shows, without building the matrix
+		if (MoveGenerator.targets(bitBoard, BitBoard.square(position.getRow(), position.getColumn())) == 0) throw new ChessException("There is no possible move for this piece");
 	}
 
 	private void validateTargetPosition(Position origin ,Position target) {
-		if (!board.piece(origin).possibleMove(target)) throw new ChessException("Chosen piece can't move to such position");
+		long targets = MoveGenerator.targets(bitBoard, BitBoard.square(origin.getRow(), origin.getColumn()));
+		if ((targets & (1L << BitBoard.square(target.getRow(), target.getColumn()))) == 0) throw new ChessException("Chosen piece can't move to such position");
 	}
 
 	private void placeNewPiece(char column, int row, ChessPiece piece) {
-		board.placePiece(piece, new ChessPosition(column, row).toPosition());
-		piecesOnTheBoard.add(piece);
+		placePiece(piece, new ChessPosition(column, row).toPosition());
 	}
 
 	private void nextTurn() {
@@ -254,56 +282,21 @@ public class ChessMatch {
 		return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
 	}
 
-	private ChessPiece king(Color color) {
-		List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == color).collect(Collectors.toList());
+	private int kingSquare(Color color) {
+		int square = bitBoard.kingSquare(BitBoard.colorIndex(color));
+		if (square == BitBoard.NO_SQUARE) throw new IllegalStateException("There is no " + color + "king in the game");
 
-		for (Piece p : list) {
-			if (p instanceof King) {
-				return (ChessPiece) p;
-			}
-		} throw new IllegalStateException("There is no " + color + "king in the game");
+		return square;
 	}
 
-	private boolean testCheck(Color color) {
-		Position kingPosition = king(color).getChessPosition().toPosition();
-		List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == opponent(color)).collect(Collectors.toList());
-		for (Piece p : opponentPieces) {
-			boolean[][] mat = p.possibleMoves();
-			if (mat[kingPosition.getRow()][kingPosition.getColumn()] == true) {
-				return true;
-			}
-		}
-		return  false;
+	boolean testCheck(Color color) {
+		return bitBoard.isSquareAttacked(kingSquare(color), BitBoard.colorIndex(opponent(color)));
 	}
 
-	private boolean testCheckMate(Color color) {
+	boolean testCheckMate(Color color) {
 		if (!testCheck(color)) return false;
 
-		List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-
-		for (Piece p : list) {
-			boolean[][] mat = p.possibleMoves();
-
-			for (int i = 0; i < board.getRows(); i++) {
-				for (int j = 0; j < board.getColumns(); j++) {
-					if (mat[i][j]) {
-						Position origin = ((ChessPiece) p).getChessPosition().toPosition();;
-						Position target = new Position(i, j);
-
-						Piece capturedPiece = makeMove(origin, target);
-
-						boolean testCheck = this.testCheck(color);
-						undoMove(origin, target, capturedPiece);
-
-						if (!testCheck) {
-							return  false;
-						}
-					}
-				}
-			}
-		}
-
-		return true;
+		return !MoveGenerator.hasLegalMove(bitBoard, moves);
 	}
 
 	private void initialSetup() {
@@ -311,34 +304,34 @@ public class ChessMatch {
 		placeNewPiece('b', 1, new Knight(board, Color.WHITE));
 		placeNewPiece('c', 1, new Bishop(board, Color.WHITE));
 		placeNewPiece('d', 1, new Queen(board, Color.WHITE));
-		placeNewPiece('e', 1, new King(board, Color.WHITE, this));
+		placeNewPiece('e', 1, new King(board, Color.WHITE));
 		placeNewPiece('f', 1, new Bishop(board, Color.WHITE));
 		placeNewPiece('g', 1, new Knight(board, Color.WHITE));
 		placeNewPiece('h', 1, new Rook(board, Color.WHITE));
-		placeNewPiece('a', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('b', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('c', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('d', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('e', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('f', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('g', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('h', 2, new Pawn(board, Color.WHITE, this));
+		placeNewPiece('a', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('b', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('c', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('d', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('e', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('f', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('g', 2, new Pawn(board, Color.WHITE));
+		placeNewPiece('h', 2, new Pawn(board, Color.WHITE));
 
 		placeNewPiece('a', 8, new Rook(board, Color.BLACK));
 		placeNewPiece('b', 8, new Knight(board, Color.BLACK));
 		placeNewPiece('c', 8, new Bishop(board, Color.BLACK));
 		placeNewPiece('d', 8, new Queen(board, Color.BLACK));
-		placeNewPiece('e', 8, new King(board, Color.BLACK, this));
+		placeNewPiece('e', 8, new King(board, Color.BLACK));
 		placeNewPiece('f', 8, new Bishop(board, Color.BLACK));
 		placeNewPiece('g', 8, new Knight(board, Color.BLACK));
 		placeNewPiece('h', 8, new Rook(board, Color.BLACK));
-		placeNewPiece('a', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('b', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('c', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('d', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('e', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('f', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('g', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('h', 7, new Pawn(board, Color.BLACK, this));
+		placeNewPiece('a', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('b', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('c', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('d', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('e', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('f', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('g', 7, new Pawn(board, Color.BLACK));
+		placeNewPiece('h', 7, new Pawn(board, Color.BLACK));
 	}
 }
@@ -2,12 +2,10 @@ package chess;
 
 import boardgame.Board;
 import boardgame.Piece;
-import boardgame.Position;
 
 public abstract class ChessPiece extends Piece{
 
 	private Color color;
-	private int moveCount;
 
 	public ChessPiece(Board board, Color color) {
 		super(board);
@@ -18,18 +16,28 @@ public abstract class ChessPiece extends Piece{
 		return color;
 	}
 
-	public int getMoveCount() { return moveCount; }
+	public ChessPosition getChessPosition() { return ChessPosition.fromPosition(position); }
 
-	public void increaseMoveCount() { moveCount++; }
+	public abstract int getType();
 
-	public void decreaseMoveCount() { moveCount--; }
+	protected BitBoard getBitBoard() { return ((ChessBoard) getBoard()).getBitBoard(); }
 
-	public ChessPosition getChessPosition() { return ChessPosition.fromPosition(position); }
+	protected int getSquare() { return BitBoard.square(position.getRow(), position.getColumn()); }
 
-	protected boolean isThereOpponentPiece(Position position) {
-		ChessPiece piece = (ChessPiece) getBoard().piece(position);
+	// thin adapter over the move generator for callers that want the board-shaped matrix
+	@Override
+	public boolean[][] possibleMoves() {
+		return toMatrix(MoveGenerator.targets(getBitBoard(), getSquare()));
+	}
 
-		return (piece != null && piece.getColor() != this.color);
+	protected boolean[][] toMatrix(long targets) {
+		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+		while (targets != 0) {
+			int square = Long.numberOfTrailingZeros(targets);
+			mat[BitBoard.row(square)][BitBoard.column(square)] = true;
+			targets &= targets - 1;
+		}
+		return mat;
 	}
 
 }
@@ -0,0 +1,205 @@
+package chess;
+
+import java.util.Arrays;
+
+// Forsyth-Edwards Notation straight to and from a BitBoard. Both directions walk the characters by hand,
+// so reading a position allocates nothing and writing one only appends to the caller's builder
+public final class Fen {
+
+	public static final String INITIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+	// piece code by character, NO_PIECE for anything that is not a piece letter
+	private static final int[] PIECES = new int[128];
+
+	static {
+		Arrays.fill(PIECES, BitBoard.NO_PIECE);
+		for (int piece = 0; piece < PIECE_CHARS.length(); piece++) {
+			PIECES[PIECE_CHARS.charAt(piece)] = piece;
+		}
+	}
+
+	private Fen() {
+	}
+
+	// fills the board with the position, replacing whatever was on it. The clocks may be left out
+	public static void parse(CharSequence fen, BitBoard b) {
+		b.clear();
+		int length = fen.length();
+		int i = skipSpaces(fen, 0);
+
+		int row = 0;
+		int column = 0;
+		for (; i < length && fen.charAt(i) != ' '; i++) {
+			char c = fen.charAt(i);
+			if (c == '/') {
+				if (column != 8) throw invalid(fen);
+				row++;
+				column = 0;
+			} else if (c >= '1' && c <= '8') {
+				column += c - '0';
+				if (column > 8) throw invalid(fen);
+			} else {
+				int piece = (c < 128) ? PIECES[c] : BitBoard.NO_PIECE;
+				if (piece == BitBoard.NO_PIECE || row > 7 || column > 7) throw invalid(fen);
+				if (b.pieceCount(piece) == BitBoard.MAX_PIECES) throw invalid(fen);
+				// a pawn on the first or last rank would have been promoted or could never have got there
+				if (BitBoard.typeOf(piece) == BitBoard.PAWN && (row == 0 || row == 7)) throw invalid(fen);
+				b.putPiece(piece, BitBoard.square(row, column++));
+			}
+		}
+		if (row != 7 || column != 8) throw invalid(fen);
+		if (b.pieceCount(BitBoard.piece(BitBoard.WHITE, BitBoard.KING)) != 1 || b.pieceCount(BitBoard.piece(BitBoard.BLACK, BitBoard.KING)) != 1) throw invalid(fen);
+
+		i = skipSpaces(fen, i);
+		if (i >= length) throw invalid(fen);
+		char side = fen.charAt(i++);
+		if (side == 'b') b.changeSide();
+		else if (side != 'w') throw invalid(fen);
+
+		i = skipSpaces(fen, i);
+		int rights = 0;
+		if (i < length && fen.charAt(i) == '-') {
+			i++;
+		} else {
+			for (; i < length && fen.charAt(i) != ' '; i++) {
+				switch (fen.charAt(i)) {
+					case 'K': rights |= BitBoard.WHITE_KINGSIDE; break;
+					case 'Q': rights |= BitBoard.WHITE_QUEENSIDE; break;
+					case 'k': rights |= BitBoard.BLACK_KINGSIDE; break;
+					case 'q': rights |= BitBoard.BLACK_QUEENSIDE; break;
+					default: throw invalid(fen);
+				}
+			}
+		}
+		// a right without its king and rook at home could never be used, and the generator relies on them
+		b.setCastlingRights(rights & possibleCastlingRights(b));
+
+		i = skipSpaces(fen, i);
+		if (i >= length) throw invalid(fen);
+		if (fen.charAt(i) == '-') {
+			i++;
+		} else {
+			if (i + 1 >= length) throw invalid(fen);
+			int epColumn = fen.charAt(i) - 'a';
+			int epRow = 8 - (fen.charAt(i + 1) - '0');
+			i += 2;
+			int us = b.getSideToMove();
+			if (epColumn < 0 || epColumn > 7 || epRow != ((us == BitBoard.WHITE) ? 2 : 5)) throw invalid(fen);
+
+			int square = BitBoard.square(epRow, epColumn);
+			// the square a pawn just skipped: empty, with the pawn in front of it and its start square empty
+			int pushed = (us == BitBoard.WHITE) ? square + 8 : square - 8;
+			int origin = (us == BitBoard.WHITE) ? square - 8 : square + 8;
+			if (b.pieceAt(square) != BitBoard.NO_PIECE || b.pieceAt(pushed) != BitBoard.piece(us ^ 1, BitBoard.PAWN)
+					|| b.pieceAt(origin) != BitBoard.NO_PIECE) throw invalid(fen);
+			// as after a double push, the square only counts when a pawn can take there
+			if ((Attacks.pawn(us ^ 1, square) & b.getPieces(us, BitBoard.PAWN)) != 0) b.setEnPassantSquare(square);
+		}
+
+		i = skipSpaces(fen, i);
+		if (i < length) {
+			int halfmove = 0;
+			int start = i;
+			for (; i < length && fen.charAt(i) != ' '; i++) {
+				halfmove = 10 * halfmove + digit(fen, i);
+				if (halfmove > BitBoard.MAX_HALFMOVE_CLOCK) throw invalid(fen);
+			}
+			if (i == start) throw invalid(fen);
+			b.setHalfmoveClock(halfmove);
+
+			i = skipSpaces(fen, i);
+			if (i < length) {
+				int fullmove = 0;
+				for (; i < length && fen.charAt(i) != ' '; i++) {
+					fullmove = 10 * fullmove + digit(fen, i);
+					if (fullmove > 1_000_000) throw invalid(fen);
+				}
+				b.setFullmoveNumber(Math.max(fullmove, 1));
+			}
+			if (skipSpaces(fen, i) != length) throw invalid(fen);
+		}
+
+		if (b.inCheck(b.getSideToMove() ^ 1)) throw invalid(fen);
+	}
+
+	public static BitBoard parse(CharSequence fen) {
+		BitBoard b = new BitBoard();
+		parse(fen, b);
+		return b;
+	}
+
+	public static String toFen(BitBoard b) {
+		return append(b, new StringBuilder(90)).toString();
+	}
+
+	// writes the position at the end of the builder and returns it
+	public static StringBuilder append(BitBoard b, StringBuilder sb) {
+		for (int row = 0; row < 8; row++) {
+			if (row > 0) sb.append('/');
+			int empty = 0;
+			for (int column = 0; column < 8; column++) {
+				int piece = b.pieceAt(BitBoard.square(row, column));
+				if (piece == BitBoard.NO_PIECE) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) sb.append((char) ('0' + empty));
+				empty = 0;
+				sb.append(PIECE_CHARS.charAt(piece));
+			}
+			if (empty > 0) sb.append((char) ('0' + empty));
+		}
+
+		sb.append(' ').append((b.getSideToMove() == BitBoard.WHITE) ? 'w' : 'b').append(' ');
+
+		int rights = b.getCastlingRights();
+		if (rights == 0) sb.append('-');
+		if ((rights & BitBoard.WHITE_KINGSIDE) != 0) sb.append('K');
+		if ((rights & BitBoard.WHITE_QUEENSIDE) != 0) sb.append('Q');
+		if ((rights & BitBoard.BLACK_KINGSIDE) != 0) sb.append('k');
+		if ((rights & BitBoard.BLACK_QUEENSIDE) != 0) sb.append('q');
+		sb.append(' ');
+
+		int enPassant = b.getEnPassantSquare();
+		if (enPassant == BitBoard.NO_SQUARE) {
+			sb.append('-');
+		} else {
+			sb.append((char) ('a' + BitBoard.column(enPassant))).append((char) ('0' + 8 - BitBoard.row(enPassant)));
+		}
+
+		return sb.append(' ').append(b.getHalfmoveClock()).append(' ').append(b.getFullmoveNumber());
+	}
+
+	private static int possibleCastlingRights(BitBoard b) {
+		int rights = 0;
+		int whiteRook = BitBoard.piece(BitBoard.WHITE, BitBoard.ROOK);
+		int blackRook = BitBoard.piece(BitBoard.BLACK, BitBoard.ROOK);
+		if (b.kingSquare(BitBoard.WHITE) == BitBoard.square(7, 4)) {
+			if (b.pieceAt(BitBoard.square(7, 7)) == whiteRook) rights |= BitBoard.WHITE_KINGSIDE;
+			if (b.pieceAt(BitBoard.square(7, 0)) == whiteRook) rights |= BitBoard.WHITE_QUEENSIDE;
+		}
+		if (b.kingSquare(BitBoard.BLACK) == BitBoard.square(0, 4)) {
+			if (b.pieceAt(BitBoard.square(0, 7)) == blackRook) rights |= BitBoard.BLACK_KINGSIDE;
+			if (b.pieceAt(BitBoard.square(0, 0)) == blackRook) rights |= BitBoard.BLACK_QUEENSIDE;
+		}
+		return rights;
+	}
+
+	private static int skipSpaces(CharSequence fen, int i) {
+		while (i < fen.length() && fen.charAt(i) == ' ') {
+			i++;
+		}
+		return i;
+	}
+
+	private static int digit(CharSequence fen, int i) {
+		char c = fen.charAt(i);
+		if (c < '0' || c > '9') throw invalid(fen);
+		return c - '0';
+	}
+
+	private static ChessException invalid(CharSequence fen) {
+		return new ChessException("Invalid FEN: " + fen);
+	}
+}
@@ -0,0 +1,12 @@
+package chess;
+
+// told about every move a match makes, so a game can be recorded while it is played. Squares are
+// numbered as on BitBoard, a8 being 0
+public interface MatchListener {
+
+	void moved(int from, int to);
+
+	// the piece type the pawn of the last move became: a queen right after the move, then whatever
+	// replacePromotedPiece turns it into
+	void promoted(int type);
+}
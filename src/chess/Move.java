@@ -0,0 +1,64 @@
+package chess;
+
+// moves are packed into an int: from (6 bits), to (6 bits), promotion type (3 bits) and flags
+public final class Move {
+
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1 << 15;
+	public static final int DOUBLE_PUSH = 1 << 16;
+	public static final int EN_PASSANT = 1 << 17;
+	public static final int CASTLING = 1 << 18;
+
+	private static final char[] PROMOTION_NAMES = {' ', 'n', 'b', 'r', 'q'};
+
+	private Move() {
+	}
+
+	public static int of(int from, int to, int flags) {
+		return from | (to << 6) | flags;
+	}
+
+	public static int of(int from, int to, int promotion, int flags) {
+		return from | (to << 6) | (promotion << 12) | flags;
+	}
+
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	// piece type the pawn becomes, or 0 (BitBoard.PAWN) when the move is not a promotion
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & CAPTURE) != 0;
+	}
+
+	public static boolean isDoublePush(int move) {
+		return (move & DOUBLE_PUSH) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+
+	public static boolean isCastling(int move) {
+		return (move & CASTLING) != 0;
+	}
+
+	public static String squareName(int square) {
+		return "" + (char) ('a' + BitBoard.column(square)) + (8 - BitBoard.row(square));
+	}
+
+	// coordinate notation, e.g. e2e4 or e7e8q
+	public static String toString(int move) {
+		String s = squareName(from(move)) + squareName(to(move));
+		return (promotion(move) == 0) ? s : s + PROMOTION_NAMES[promotion(move)];
+	}
+}
@@ -0,0 +1,354 @@
+package chess;
+
+import static chess.BitBoard.BISHOP;
+import static chess.BitBoard.KNIGHT;
+import static chess.BitBoard.NO_PIECE;
+import static chess.BitBoard.NO_SQUARE;
+import static chess.BitBoard.PAWN;
+import static chess.BitBoard.QUEEN;
+import static chess.BitBoard.ROOK;
+import static chess.BitBoard.WHITE;
+
+// fills caller-supplied MoveLists, so generating moves allocates nothing
+public final class MoveGenerator {
+
+	private static final long ROW_0 = 0xFFL;
+	private static final long ROW_7 = 0xFFL << 56;
+	private static final long ROW_5 = 0xFFL << 40;
+	private static final long ROW_2 = 0xFFL << 16;
+
+	private MoveGenerator() {
+	}
+
+	// pseudo-legal moves for the side to move: they may still leave the own king in check
+	public static void generate(BitBoard b, MoveList list) {
+		list.clear();
+		int us = b.getSideToMove();
+		long own = b.getColorPieces(us);
+		long enemy = b.getColorPieces(us ^ 1);
+		long occupied = b.getOccupied();
+
+		long pawns = b.getPieces(us, PAWN);
+		generatePawnMoves(list, us, pawns, enemy, occupied, ~0L);
+
+		// #specialmove en passant
+		int enPassant = b.getEnPassantSquare();
+		if (enPassant != NO_SQUARE) {
+			long capturers = Attacks.pawn(us ^ 1, enPassant) & pawns;
+			while (capturers != 0) {
+				int from = Long.numberOfTrailingZeros(capturers);
+				capturers &= capturers - 1;
+				list.add(Move.of(from, enPassant, Move.EN_PASSANT | Move.CAPTURE));
+			}
+		}
+
+		long knights = b.getPieces(us, KNIGHT);
+		while (knights != 0) {
+			int from = Long.numberOfTrailingZeros(knights);
+			knights &= knights - 1;
+			addMoves(list, from, Attacks.knight(from) & ~own, enemy);
+		}
+
+		long diagonal = b.getPieces(us, BISHOP) | b.getPieces(us, QUEEN);
+		while (diagonal != 0) {
+			int from = Long.numberOfTrailingZeros(diagonal);
+			diagonal &= diagonal - 1;
+			addMoves(list, from, Attacks.bishop(from, occupied) & ~own, enemy);
+		}
+
+		long straight = b.getPieces(us, ROOK) | b.getPieces(us, QUEEN);
+		while (straight != 0) {
+			int from = Long.numberOfTrailingZeros(straight);
+			straight &= straight - 1;
+			addMoves(list, from, Attacks.rook(from, occupied) & ~own, enemy);
+		}
+
+		int king = b.kingSquare(us);
+		addMoves(list, king, Attacks.king(king) & ~own, enemy);
+		generateCastling(b, list, us, king);
+	}
+
+	// only the moves that do not leave the own king in check. Checkers and pinned pieces are worked out
+	// once for the position, so no move has to be tried with make/unmake
+	public static void generateLegal(BitBoard b, MoveList list) {
+		generateLegal(b, list, true, true);
+	}
+
+	// the legal captures, en passant included, and the promotions, for pickers that try them before
+	// anything else and for the quiescence search
+	public static void generateLegalCaptures(BitBoard b, MoveList list) {
+		generateLegal(b, list, true, false);
+	}
+
+	// the rest of the legal moves: to empty squares, castling included, but not promotions
+	public static void generateLegalQuiets(BitBoard b, MoveList list) {
+		generateLegal(b, list, false, true);
+	}
+
+	private static void generateLegal(BitBoard b, MoveList list, boolean captures, boolean quiets) {
+		list.clear();
+		int us = b.getSideToMove();
+		int them = us ^ 1;
+		long own = b.getColorPieces(us);
+		long enemy = b.getColorPieces(them);
+		long occupied = b.getOccupied();
+		int king = b.kingSquare(us);
+		long targets = (captures ? enemy : 0) | (quiets ? ~occupied : 0);
+		// a pawn reaching the last row changes the material like a capture, so it goes with them
+		long pawnTargets = (captures ? enemy | ROW_0 | ROW_7 : 0) | (quiets ? ~occupied & ~(ROW_0 | ROW_7) : 0);
+
+		// the king is taken off the board, so it cannot hide behind itself on a slider's line
+		long kingTargets = Attacks.king(king) & targets;
+		long withoutKing = occupied ^ (1L << king);
+		while (kingTargets != 0) {
+			int to = Long.numberOfTrailingZeros(kingTargets);
+			kingTargets &= kingTargets - 1;
+			if (b.attackers(to, them, withoutKing) == 0) {
+				list.add(Move.of(king, to, ((enemy >>> to) & 1) != 0 ? Move.CAPTURE : 0));
+			}
+		}
+
+		long checkers = b.attackers(king, them, occupied);
+		// double check: only the king can move
+		if ((checkers & (checkers - 1)) != 0) return;
+
+		// when in check every other piece has to capture the checker or step in between
+		long evasions = (checkers == 0) ? ~0L : checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+		long checkMask = evasions & targets;
+		long pawnMask = evasions & pawnTargets;
+		long pinned = pinned(b, us, king, occupied, own);
+
+		long pawns = b.getPieces(us, PAWN);
+		generatePawnMoves(list, us, pawns & ~pinned, enemy, occupied, pawnMask);
+		long pinnedPawns = pawns & pinned;
+		while (pinnedPawns != 0) {
+			int from = Long.numberOfTrailingZeros(pinnedPawns);
+			pinnedPawns &= pinnedPawns - 1;
+			generatePawnMoves(list, us, 1L << from, enemy, occupied, pawnMask & Attacks.line(king, from));
+		}
+		if (captures) generateEnPassant(b, list, us, king, occupied);
+
+		// a pinned knight can never stay on the pin line
+		long knights = b.getPieces(us, KNIGHT) & ~pinned;
+		while (knights != 0) {
+			int from = Long.numberOfTrailingZeros(knights);
+			knights &= knights - 1;
+			addMoves(list, from, Attacks.knight(from) & ~own & checkMask, enemy);
+		}
+
+		long diagonal = b.getPieces(us, BISHOP) | b.getPieces(us, QUEEN);
+		while (diagonal != 0) {
+			int from = Long.numberOfTrailingZeros(diagonal);
+			diagonal &= diagonal - 1;
+			long mask = ((pinned >>> from) & 1) != 0 ? checkMask & Attacks.line(king, from) : checkMask;
+			addMoves(list, from, Attacks.bishop(from, occupied) & ~own & mask, enemy);
+		}
+
+		long straight = b.getPieces(us, ROOK) | b.getPieces(us, QUEEN);
+		while (straight != 0) {
+			int from = Long.numberOfTrailingZeros(straight);
+			straight &= straight - 1;
+			long mask = ((pinned >>> from) & 1) != 0 ? checkMask & Attacks.line(king, from) : checkMask;
+			addMoves(list, from, Attacks.rook(from, occupied) & ~own & mask, enemy);
+		}
+
+		if (quiets && checkers == 0) generateCastling(b, list, us, king);
+	}
+
+	public static boolean hasLegalMove(BitBoard b, MoveList list) {
+		generateLegal(b, list);
+		return list.size() > 0;
+	}
+
+	// whether a move from elsewhere, such as a transposition table or a killer slot, is legal here
+	public static boolean isLegal(BitBoard b, int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int piece = b.pieceAt(from);
+		int us = b.getSideToMove();
+		if (piece == NO_PIECE || BitBoard.colorOf(piece) != us || (targets(b, from) & (1L << to)) == 0) return false;
+
+		boolean promotes = BitBoard.typeOf(piece) == PAWN && ((1L << to) & (ROW_0 | ROW_7)) != 0;
+		if (promotes != (Move.promotion(move) != 0) || Move.promotion(move) > QUEEN) return false;
+		// the flags have to be exactly the ones the generator gives the move
+		if (b.createMove(from, to, Move.promotion(move)) != move) return false;
+
+		b.makeMove(move);
+		boolean legal = !b.inCheck(us);
+		b.undoMove();
+		return legal;
+	}
+
+	// own pieces standing alone between the king and an enemy slider
+	private static long pinned(BitBoard b, int us, int king, long occupied, long own) {
+		int them = us ^ 1;
+		long queens = b.getPieces(them, QUEEN);
+		long snipers = (Attacks.rookRays(king) & (b.getPieces(them, ROOK) | queens))
+				| (Attacks.bishopRays(king) & (b.getPieces(them, BISHOP) | queens));
+
+		long pinned = 0;
+		while (snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = Attacks.between(king, sniper) & occupied;
+			if ((blockers & (blockers - 1)) == 0 && (blockers & own) != 0) pinned |= blockers;
+		}
+		return pinned;
+	}
+
+	// #specialmove en passant
+	// two pawns leave the same rank at once, so the position after the capture is checked directly:
+	// this covers evasions as well as the discovered check along the rank
+	private static void generateEnPassant(BitBoard b, MoveList list, int us, int king, long occupied) {
+		int enPassant = b.getEnPassantSquare();
+		if (enPassant == NO_SQUARE) return;
+
+		long captured = 1L << (enPassant + ((us == WHITE) ? 8 : -8));
+		long capturers = Attacks.pawn(us ^ 1, enPassant) & b.getPieces(us, PAWN);
+		while (capturers != 0) {
+			int from = Long.numberOfTrailingZeros(capturers);
+			capturers &= capturers - 1;
+			long after = (occupied ^ (1L << from) ^ captured) | (1L << enPassant);
+			if ((b.attackers(king, us ^ 1, after) & ~captured) == 0) {
+				list.add(Move.of(from, enPassant, Move.EN_PASSANT | Move.CAPTURE));
+			}
+		}
+	}
+
+	// pseudo-legal target squares of the piece on the square, whichever side it belongs to
+	public static long targets(BitBoard b, int square) {
+		int piece = b.pieceAt(square);
+		if (piece == NO_PIECE) return 0;
+
+		int color = BitBoard.colorOf(piece);
+		long own = b.getColorPieces(color);
+		long occupied = b.getOccupied();
+
+		switch (BitBoard.typeOf(piece)) {
+			case PAWN: return pawnTargets(b, square, color);
+			case KNIGHT: return Attacks.knight(square) & ~own;
+			case BISHOP: return Attacks.bishop(square, occupied) & ~own;
+			case ROOK: return Attacks.rook(square, occupied) & ~own;
+			case QUEEN: return Attacks.queen(square, occupied) & ~own;
+			default:
+				long targets = Attacks.king(square) & ~own;
+				return (b.getSideToMove() == color) ? targets | castlingTargets(b, color, square) : targets;
+		}
+	}
+
+	private static long pawnTargets(BitBoard b, int square, int color) {
+		long empty = ~b.getOccupied();
+		long bit = 1L << square;
+		long targets = Attacks.pawn(color, square) & b.getColorPieces(color ^ 1);
+
+		if (color == WHITE) {
+			long one = (bit >>> 8) & empty;
+			targets |= one | ((one & ROW_5) >>> 8) & empty;
+		} else {
+			long one = (bit << 8) & empty;
+			targets |= one | ((one & ROW_2) << 8) & empty;
+		}
+
+		// #specialmove en passant
+		int enPassant = b.getEnPassantSquare();
+		if (enPassant != NO_SQUARE && b.getSideToMove() == color) {
+			targets |= Attacks.pawn(color, square) & (1L << enPassant);
+		}
+		return targets;
+	}
+
+	// pushes and captures of the given pawns, kept to the target mask; en passant is left to the callers
+	private static void generatePawnMoves(MoveList list, int us, long pawns, long enemy, long occupied, long mask) {
+		long empty = ~occupied;
+		long single;
+		long doubles;
+		int forward;
+		if (us == WHITE) {
+			single = (pawns >>> 8) & empty;
+			doubles = ((single & ROW_5) >>> 8) & empty & mask;
+			forward = -8;
+		} else {
+			single = (pawns << 8) & empty;
+			doubles = ((single & ROW_2) << 8) & empty & mask;
+			forward = 8;
+		}
+		single &= mask;
+
+		while (single != 0) {
+			int to = Long.numberOfTrailingZeros(single);
+			single &= single - 1;
+			addPawnMove(list, to - forward, to, 0);
+		}
+		while (doubles != 0) {
+			int to = Long.numberOfTrailingZeros(doubles);
+			doubles &= doubles - 1;
+			list.add(Move.of(to - 2 * forward, to, Move.DOUBLE_PUSH));
+		}
+
+		long attackers = pawns;
+		while (attackers != 0) {
+			int from = Long.numberOfTrailingZeros(attackers);
+			attackers &= attackers - 1;
+			long captures = Attacks.pawn(us, from) & enemy & mask;
+			while (captures != 0) {
+				int to = Long.numberOfTrailingZeros(captures);
+				captures &= captures - 1;
+				addPawnMove(list, from, to, Move.CAPTURE);
+			}
+		}
+	}
+
+	private static void addPawnMove(MoveList list, int from, int to, int flags) {
+		if (((1L << to) & (ROW_0 | ROW_7)) != 0) {
+			list.add(Move.of(from, to, QUEEN, flags));
+			list.add(Move.of(from, to, ROOK, flags));
+			list.add(Move.of(from, to, BISHOP, flags));
+			list.add(Move.of(from, to, KNIGHT, flags));
+		} else {
+			list.add(Move.of(from, to, flags));
+		}
+	}
+
+	private static void addMoves(MoveList list, int from, long targets, long enemy) {
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			list.add(Move.of(from, to, ((enemy >>> to) & 1) != 0 ? Move.CAPTURE : 0));
+		}
+	}
+
+	private static void generateCastling(BitBoard b, MoveList list, int us, int king) {
+		long targets = castlingTargets(b, us, king);
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			list.add(Move.of(king, to, Move.CASTLING));
+		}
+	}
+
+	private static long castlingTargets(BitBoard b, int us, int king) {
+		int kingside = (us == WHITE) ? BitBoard.WHITE_KINGSIDE : BitBoard.BLACK_KINGSIDE;
+		int queenside = (us == WHITE) ? BitBoard.WHITE_QUEENSIDE : BitBoard.BLACK_QUEENSIDE;
+		int rights = b.getCastlingRights() & (kingside | queenside);
+		if (rights == 0 || king != BitBoard.square((us == WHITE) ? 7 : 0, 4)) return 0;
+
+		int them = us ^ 1;
+		if (b.isSquareAttacked(king, them)) return 0;
+
+		long targets = 0;
+		int rook = BitBoard.piece(us, ROOK);
+
+		//castling kingside rook
+		if ((rights & kingside) != 0 && b.pieceAt(king + 3) == rook && b.pieceAt(king + 1) == NO_PIECE && b.pieceAt(king + 2) == NO_PIECE
+				&& !b.isSquareAttacked(king + 1, them) && !b.isSquareAttacked(king + 2, them)) {
+			targets |= 1L << (king + 2);
+		}
+
+		//castling queenside rook
+		if ((rights & queenside) != 0 && b.pieceAt(king - 4) == rook && b.pieceAt(king - 1) == NO_PIECE && b.pieceAt(king - 2) == NO_PIECE
+				&& b.pieceAt(king - 3) == NO_PIECE && !b.isSquareAttacked(king - 1, them) && !b.isSquareAttacked(king - 2, them)) {
+			targets |= 1L << (king - 2);
+		}
+		return targets;
+	}
+}
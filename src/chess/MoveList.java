@@ -0,0 +1,43 @@
+package chess;
+
+// preallocated move buffer, meant to be kept per search ply and reused
+public class MoveList {
+
+	// no legal chess position has more than 218 moves
+	public static final int CAPACITY = 256;
+
+	private final int[] moves = new int[CAPACITY];
+	private int size;
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(int move) {
+		moves[size++] = move;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void truncate(int size) {
+		this.size = size;
+	}
+
+	// first move between the two squares, or Move.NONE; promotions match whatever piece they promote to
+	public int find(int from, int to) {
+		for (int i = 0; i < size; i++) {
+			if (Move.from(moves[i]) == from && Move.to(moves[i]) == to) return moves[i];
+		}
+		return Move.NONE;
+	}
+}
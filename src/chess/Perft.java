@@ -0,0 +1,64 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Perft {
+
+	private static final int MAX_DEPTH = 64;
+
+	private BitBoard bitBoard;
+	private boolean bulk;
+	private MoveList[] moves = new MoveList[MAX_DEPTH];
+
+	public Perft(ChessMatch match, boolean bulk) {
+		this.bitBoard = match.getBitBoard();
+		this.bulk = bulk;
+		for (int i = 0; i < MAX_DEPTH; i++) {
+			moves[i] = new MoveList();
+		}
+	}
+
+	public static Perft fromFen(String fen, boolean bulk) {
+		return new Perft(ChessMatch.fromFen(fen), bulk);
+	}
+
+	public long count(int depth) {
+		if (depth > MAX_DEPTH) throw new IllegalArgumentException("Perft depth is limited to " + MAX_DEPTH);
+		if (depth < 0) throw new IllegalArgumentException("Perft needs a depth of at least 0");
+		return perft(depth);
+	}
+
+	// nodes below every legal root move, keyed by the move in coordinate notation
+	public Map<String, Long> divide(int depth) {
+		if (depth > MAX_DEPTH) throw new IllegalArgumentException("Perft depth is limited to " + MAX_DEPTH);
+		if (depth < 1) throw new IllegalArgumentException("Divide needs a depth of at least 1");
+
+		Map<String, Long> result = new LinkedHashMap<>();
+		MoveList list = moves[depth - 1];
+		MoveGenerator.generateLegal(bitBoard, list);
+		for (int i = 0; i < list.size(); i++) {
+			int move = list.get(i);
+			bitBoard.makeMove(move);
+			result.put(Move.toString(move), perft(depth - 1));
+			bitBoard.undoMove();
+		}
+		return result;
+	}
+
+	private long perft(int depth) {
+		if (depth == 0) return 1;
+
+		MoveList list = moves[depth - 1];
+		MoveGenerator.generateLegal(bitBoard, list);
+		if (bulk && depth == 1) return list.size();
+
+		long nodes = 0;
+		for (int i = 0; i < list.size(); i++) {
+			bitBoard.makeMove(list.get(i));
+			nodes += perft(depth - 1);
+			bitBoard.undoMove();
+		}
+		return nodes;
+	}
+}
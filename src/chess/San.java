@@ -0,0 +1,176 @@
+package chess;
+
+// standard algebraic notation, as PGN files use it. Moves are read from bytes, so a reader can hand over
+// a token straight from its buffer, and must be legal in the position to be found
+public final class San {
+
+	private static final String PIECE_LETTERS = "PNBRQK";
+	private static final long FILE = 0x0101010101010101L;
+	private static final long RANK = 0xFFL;
+
+	private San() {
+	}
+
+	// the legal move the token stands for, or Move.NONE when there is no such move or more than one.
+	// Check and annotation marks at the end are ignored. Only the pieces that can reach the target are
+	// tried, so nothing is generated for the rest of the position
+	public static int parse(BitBoard b, byte[] token, int offset, int length) {
+		int end = offset + length;
+		while (end > offset && isSuffix(token[end - 1])) {
+			end--;
+		}
+		if (end - offset < 2) return Move.NONE;
+		if (token[offset] == 'O' || token[offset] == '0') return castling(b, token, offset, end);
+
+		int type = BitBoard.PAWN;
+		int start = offset;
+		int letter = PIECE_LETTERS.indexOf(token[start]);
+		if (letter > BitBoard.PAWN) {
+			type = letter;
+			start++;
+		}
+
+		int promotion = 0;
+		if (type == BitBoard.PAWN) {
+			int promoted = PIECE_LETTERS.indexOf(token[end - 1]);
+			if (promoted > BitBoard.PAWN && promoted < BitBoard.KING) {
+				promotion = promoted;
+				end--;
+				if (end > start && token[end - 1] == '=') end--;
+			}
+		}
+
+		if (end - start < 2) return Move.NONE;
+		int toColumn = token[end - 2] - 'a';
+		int toRow = '8' - token[end - 1];
+		if (toColumn < 0 || toColumn > 7 || toRow < 0 || toRow > 7) return Move.NONE;
+		int to = BitBoard.square(toRow, toColumn);
+		end -= 2;
+
+		// whatever is left between the piece and the target: disambiguation and the capture mark
+		long candidates = sources(b, type, to);
+		// a pawn capture always names the file it comes from, so without one it is a push
+		if (type == BitBoard.PAWN && (end == start || token[start] < 'a' || token[start] > 'h')) candidates &= FILE << toColumn;
+		for (int i = start; i < end; i++) {
+			byte c = token[i];
+			if (c >= 'a' && c <= 'h') candidates &= FILE << (c - 'a');
+			else if (c >= '1' && c <= '8') candidates &= RANK << (8 * ('8' - c));
+			else if (c != 'x' && c != ':' && c != '-') return Move.NONE;
+		}
+
+		int found = Move.NONE;
+		while (candidates != 0) {
+			int from = Long.numberOfTrailingZeros(candidates);
+			candidates &= candidates - 1;
+			int move = b.createMove(from, to, promotion);
+			if (!MoveGenerator.isLegal(b, move)) continue;
+			if (found != Move.NONE) return Move.NONE;
+			found = move;
+		}
+		return found;
+	}
+
+	// writes the move, a legal one in the position, at the end of the builder and returns it
+	public static StringBuilder append(BitBoard b, int move, MoveList list, StringBuilder sb) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int type = BitBoard.typeOf(b.pieceAt(from));
+
+		if (Move.isCastling(move)) {
+			sb.append((to > from) ? "O-O" : "O-O-O");
+		} else if (type == BitBoard.PAWN) {
+			if (Move.isCapture(move)) sb.append((char) ('a' + BitBoard.column(from))).append('x');
+			appendSquare(sb, to);
+			if (Move.promotion(move) != 0) sb.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+		} else {
+			sb.append(PIECE_LETTERS.charAt(type));
+			appendDisambiguation(b, move, type, list, sb);
+			if (Move.isCapture(move)) sb.append('x');
+			appendSquare(sb, to);
+		}
+
+		b.makeMove(move);
+		if (b.inCheck(b.getSideToMove())) sb.append(MoveGenerator.hasLegalMove(b, list) ? '+' : '#');
+		b.undoMove();
+		return sb;
+	}
+
+	public static String toSan(BitBoard b, int move) {
+		return append(b, move, new MoveList(), new StringBuilder(8)).toString();
+	}
+
+	// the file if that tells the candidates apart, else the rank, else both
+	private static void appendDisambiguation(BitBoard b, int move, int type, MoveList list, StringBuilder sb) {
+		int from = Move.from(move);
+		boolean ambiguous = false;
+		boolean sameColumn = false;
+		boolean sameRow = false;
+
+		MoveGenerator.generateLegal(b, list);
+		for (int i = 0; i < list.size(); i++) {
+			int other = Move.from(list.get(i));
+			if (other == from || Move.to(list.get(i)) != Move.to(move) || BitBoard.typeOf(b.pieceAt(other)) != type) continue;
+			ambiguous = true;
+			if (BitBoard.column(other) == BitBoard.column(from)) sameColumn = true;
+			if (BitBoard.row(other) == BitBoard.row(from)) sameRow = true;
+		}
+		if (!ambiguous) return;
+
+		if (!sameColumn) {
+			sb.append((char) ('a' + BitBoard.column(from)));
+		} else if (!sameRow) {
+			sb.append((char) ('8' - BitBoard.row(from)));
+		} else {
+			appendSquare(sb, from);
+		}
+	}
+
+	private static int castling(BitBoard b, byte[] token, int offset, int end) {
+		// O-O or O-O-O, with letters or zeros
+		int length = end - offset;
+		if (length != 3 && length != 5) return Move.NONE;
+		for (int i = offset; i < end; i++) {
+			byte expected = ((i - offset) % 2 == 1) ? (byte) '-' : token[offset];
+			if (token[i] != expected) return Move.NONE;
+		}
+
+		// a king off e1 or e8 has no castling to look for, and king + 2 could be off the board
+		int king = b.kingSquare(b.getSideToMove());
+		if (king != BitBoard.square((b.getSideToMove() == BitBoard.WHITE) ? 7 : 0, 4)) return Move.NONE;
+
+		MoveList list = new MoveList();
+		MoveGenerator.generateLegal(b, list);
+		int move = list.find(king, (length == 3) ? king + 2 : king - 2);
+		return (move != Move.NONE && Move.isCastling(move)) ? move : Move.NONE;
+	}
+
+	// own pieces of the type that might move to the square; the legality check sorts out the rest
+	private static long sources(BitBoard b, int type, int to) {
+		int us = b.getSideToMove();
+		long occupied = b.getOccupied();
+		long attackers;
+		switch (type) {
+			case BitBoard.PAWN:
+				// pawns that capture there, or push there by one or two squares
+				int behind = (us == BitBoard.WHITE) ? 8 : -8;
+				attackers = Attacks.pawn(us ^ 1, to);
+				if (to + behind >= 0 && to + behind < 64) attackers |= 1L << (to + behind);
+				if (to + 2 * behind >= 0 && to + 2 * behind < 64) attackers |= 1L << (to + 2 * behind);
+				break;
+			case BitBoard.KNIGHT: attackers = Attacks.knight(to); break;
+			case BitBoard.BISHOP: attackers = Attacks.bishop(to, occupied); break;
+			case BitBoard.ROOK: attackers = Attacks.rook(to, occupied); break;
+			case BitBoard.QUEEN: attackers = Attacks.queen(to, occupied); break;
+			default: attackers = Attacks.king(to);
+		}
+		return attackers & b.getPieces(us, type);
+	}
+
+	private static boolean isSuffix(byte c) {
+		return c == '+' || c == '#' || c == '!' || c == '?';
+	}
+
+	private static void appendSquare(StringBuilder sb, int square) {
+		sb.append((char) ('a' + BitBoard.column(square))).append((char) ('8' - BitBoard.row(square)));
+	}
+}
@@ -0,0 +1,61 @@
+package chess;
+
+public final class Zobrist {
+
+	private static final long[][] PIECES = new long[12][64];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT = new long[8];
+	private static final long SIDE;
+
+	static {
+		// fixed seed, so keys are stable across runs and can be stored
+		long seed = 0x2F0A6D3C5B1E4987L;
+		for (int piece = 0; piece < 12; piece++) {
+			for (int square = 0; square < 64; square++) {
+				seed = next(seed);
+				PIECES[piece][square] = mix(seed);
+			}
+		}
+		for (int i = 0; i < 16; i++) {
+			seed = next(seed);
+			CASTLING[i] = mix(seed);
+		}
+		CASTLING[0] = 0;
+		for (int i = 0; i < 8; i++) {
+			seed = next(seed);
+			EN_PASSANT[i] = mix(seed);
+		}
+		seed = next(seed);
+		SIDE = mix(seed);
+	}
+
+	private Zobrist() {
+	}
+
+	public static long piece(int piece, int square) {
+		return PIECES[piece][square];
+	}
+
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+
+	public static long enPassant(int column) {
+		return EN_PASSANT[column];
+	}
+
+	public static long side() {
+		return SIDE;
+	}
+
+	private static long next(long seed) {
+		return seed + 0x9E3779B97F4A7C15L;
+	}
+
+	// SplitMix64 finalizer
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,18 +1,14 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
-import chess.ChessMatch;
+import chess.BitBoard;
 import chess.ChessPiece;
 import chess.Color;
 
 public class King extends ChessPiece {
 
-	private ChessMatch match;
-
-	public King(Board board, Color color, ChessMatch match) {
+	public King(Board board, Color color) {
 		super(board, color);
-		this.match = match;
 	}
 	
 	@Override
@@ -20,95 +16,8 @@ public class King extends ChessPiece {
 		return "K";
 	}
 
-	private boolean canMove(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-
-		return (p == null || p.getColor() != getColor());
-	}
-
-	private boolean testRookCastling(Position position) {
-		ChessPiece p = (ChessPiece)getBoard().piece(position);
-		return (p != null && p instanceof Rook && p.getColor() == this.getColor() && p.getMoveCount() == 0);
-	}
-
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-		Position p = new Position(0, 0);
-
-		// above
-		p.setValues(position.getRow() - 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// below
-		p.setValues(position.getRow() + 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// left
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// right
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// nw
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// ne
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// sw
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// se
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		//castling
-		if (getMoveCount() == 0 && !match.getCheck()) {
-			//castling kingside rook
-			Position posR1 = new Position(position.getRow(), position.getColumn() + 3);
-			if (testRookCastling(posR1)) {
-				Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-				Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-				if (getBoard().piece(p1) == null && getBoard().piece(p2) == null) {
-					mat[position.getRow()][position.getColumn() + 2] = true;
-				}
-			}
-
-			//castling queenside rook
-			Position posR2 = new Position(position.getRow(), position.getColumn() - 4);
-			if (testRookCastling(posR1)) {
-				Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-				Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-				Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-				if (getBoard().piece(p1) == null && getBoard().piece(p2) == null && getBoard().piece(p3) != null) {
-					mat[position.getRow()][position.getColumn() - 2] = true;
-				}
-			}
-		}
-
-		return mat;
+	public int getType() {
+		return BitBoard.KING;
 	}
 }
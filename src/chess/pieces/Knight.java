@@ -1,7 +1,7 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.BitBoard;
 import chess.ChessPiece;
 import chess.Color;
 
@@ -16,57 +16,8 @@ public class Knight extends ChessPiece {
         return "N";
     }
 
-    private boolean canMove(Position position) {
-        ChessPiece p = (ChessPiece)getBoard().piece(position);
-        return p == null || p.getColor() != getColor();
-    }
-
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-        Position p = new Position(0, 0);
-
-        p.setValues(position.getRow() - 1, position.getColumn() - 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() - 2, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() - 2, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() - 1, position.getColumn() + 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() + 1, position.getColumn() + 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() + 2, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() + 2, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        p.setValues(position.getRow() + 1, position.getColumn() - 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        return mat;
+    public int getType() {
+        return BitBoard.KNIGHT;
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package engine;
+
+import chess.Attacks;
+import chess.BitBoard;
+import chess.PieceSquareTables;
+
+// each search owns one, since the pawn cache is not shared between threads
+public final class Evaluation {
+
+	// indexed by piece type, for move ordering; the king is never captured, so it counts for nothing
+	public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+	private static final int PAWN_TABLE_ENTRIES = 1 << 16;
+
+	private static final int DOUBLED_MIDDLEGAME = -10;
+	private static final int DOUBLED_ENDGAME = -20;
+	private static final int ISOLATED_MIDDLEGAME = -10;
+	private static final int ISOLATED_ENDGAME = -15;
+	private static final int BACKWARD_MIDDLEGAME = -8;
+	private static final int BACKWARD_ENDGAME = -10;
+	// by rank counted from the pawn's own side, 0 being its back rank
+	private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 20, 35, 60, 100, 0};
+	private static final int[] PASSED_ENDGAME = {0, 10, 20, 40, 70, 120, 200, 0};
+	private static final int SHIELD_NEAR = 10;
+	private static final int SHIELD_FAR = 5;
+
+	private static final long[] FILES = new long[8];
+	private static final long[] ADJACENT_FILES = new long[8];
+	// squares ahead of a pawn on its own and the adjacent files: no enemy pawn there makes it passed
+	private static final long[][] PASSED_SPAN = new long[2][64];
+	// squares on the adjacent files level with or behind a pawn, where its supporting pawns stand
+	private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+	static {
+		for (int column = 0; column < 8; column++) {
+			FILES[column] = 0x0101010101010101L << column;
+		}
+		for (int column = 0; column < 8; column++) {
+			ADJACENT_FILES[column] = ((column > 0) ? FILES[column - 1] : 0) | ((column < 7) ? FILES[column + 1] : 0);
+		}
+		for (int square = 0; square < 64; square++) {
+			int row = BitBoard.row(square);
+			long files = FILES[BitBoard.column(square)] | ADJACENT_FILES[BitBoard.column(square)];
+			// white pawns advance towards row 0, so the rows ahead of a white pawn are the lower ones
+			long above = (row == 0) ? 0 : -1L >>> (64 - 8 * row);
+			long below = (row == 7) ? 0 : -1L << (8 * (row + 1));
+			PASSED_SPAN[BitBoard.WHITE][square] = files & above;
+			PASSED_SPAN[BitBoard.BLACK][square] = files & below;
+			SUPPORT_SPAN[BitBoard.WHITE][square] = ADJACENT_FILES[BitBoard.column(square)] & ~above;
+			SUPPORT_SPAN[BitBoard.BLACK][square] = ADJACENT_FILES[BitBoard.column(square)] & ~below;
+		}
+	}
+
+	private final PawnTable pawns = new PawnTable(PAWN_TABLE_ENTRIES);
+
+	// score of the position in centipawns, from the point of view of the side to move. The board keeps
+	// the material and piece-square sums up to date as pieces move, and pawn structure comes from the cache
+	public int evaluate(BitBoard b) {
+		int middlegame = b.getMiddlegameScore();
+		int endgame = b.getEndgameScore();
+
+		long key = b.getPawnKey();
+		int index = pawns.index(key);
+		if (!pawns.probe(index, key)) evaluatePawns(b, index, key);
+		middlegame += pawns.middlegame(index);
+		endgame += pawns.endgame(index);
+
+		// terms that also depend on the kings stay out of the cache
+		endgame += passedPawnKings(b, pawns.passed(index));
+		middlegame += shield(b, BitBoard.WHITE) - shield(b, BitBoard.BLACK);
+
+		// promotions can push the phase past its starting value
+		int phase = Math.min(b.getPhase(), PieceSquareTables.MAX_PHASE);
+		int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+		return (b.getSideToMove() == BitBoard.WHITE) ? score : -score;
+	}
+
+	public double getPawnHitRate() {
+		return pawns.getHitRate();
+	}
+
+	// doubled, isolated, backward and passed pawns, white minus black
+	private void evaluatePawns(BitBoard b, int index, long key) {
+		int middlegame = 0;
+		int endgame = 0;
+		long passed = 0;
+
+		for (int color = BitBoard.WHITE; color <= BitBoard.BLACK; color++) {
+			int sign = (color == BitBoard.WHITE) ? 1 : -1;
+			long own = b.getPieces(color, BitBoard.PAWN);
+			long enemy = b.getPieces(color ^ 1, BitBoard.PAWN);
+
+			for (int column = 0; column < 8; column++) {
+				int count = Long.bitCount(own & FILES[column]);
+				if (count > 1) {
+					middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+					endgame += sign * DOUBLED_ENDGAME * (count - 1);
+				}
+			}
+
+			long pawnsLeft = own;
+			while (pawnsLeft != 0) {
+				int square = Long.numberOfTrailingZeros(pawnsLeft);
+				pawnsLeft &= pawnsLeft - 1;
+				int column = BitBoard.column(square);
+
+				if ((own & ADJACENT_FILES[column]) == 0) {
+					middlegame += sign * ISOLATED_MIDDLEGAME;
+					endgame += sign * ISOLATED_ENDGAME;
+				} else if ((own & SUPPORT_SPAN[color][square]) == 0
+						&& (Attacks.pawn(color, stopSquare(color, square)) & enemy) != 0) {
+					// no pawn can come up to defend it, and it cannot advance safely either
+					middlegame += sign * BACKWARD_MIDDLEGAME;
+					endgame += sign * BACKWARD_ENDGAME;
+				}
+
+				if ((enemy & PASSED_SPAN[color][square]) == 0) {
+					int rank = relativeRank(color, square);
+					middlegame += sign * PASSED_MIDDLEGAME[rank];
+					endgame += sign * PASSED_ENDGAME[rank];
+					passed |= 1L << square;
+				}
+			}
+		}
+		pawns.store(index, key, middlegame, endgame, passed);
+	}
+
+	// in the endgame a passed pawn is worth more with the own king near its path and the enemy king far
+	private static int passedPawnKings(BitBoard b, long passed) {
+		int score = 0;
+		for (int color = BitBoard.WHITE; color <= BitBoard.BLACK; color++) {
+			long own = passed & b.getPieces(color, BitBoard.PAWN);
+			int ownKing = b.kingSquare(color);
+			int enemyKing = b.kingSquare(color ^ 1);
+			int sign = (color == BitBoard.WHITE) ? 1 : -1;
+
+			while (own != 0) {
+				int square = Long.numberOfTrailingZeros(own);
+				own &= own - 1;
+				int stop = stopSquare(color, square);
+				score += sign * relativeRank(color, square) * (2 * distance(enemyKing, stop) - distance(ownKing, stop));
+			}
+		}
+		return score;
+	}
+
+	// own pawns in front of a king sitting on a wing of its back rank
+	private static int shield(BitBoard b, int color) {
+		int king = b.kingSquare(color);
+		int column = BitBoard.column(king);
+		if (relativeRank(color, king) != 0 || column == 3 || column == 4) return 0;
+
+		long files = FILES[column] | ADJACENT_FILES[column];
+		long pawns = b.getPieces(color, BitBoard.PAWN) & files;
+		int near = stopSquare(color, king);
+		int far = stopSquare(color, near);
+		long nearRow = 0xFFL << (8 * BitBoard.row(near));
+		long farRow = 0xFFL << (8 * BitBoard.row(far));
+		return SHIELD_NEAR * Long.bitCount(pawns & nearRow) + SHIELD_FAR * Long.bitCount(pawns & farRow);
+	}
+
+	private static int stopSquare(int color, int square) {
+		return (color == BitBoard.WHITE) ? square - 8 : square + 8;
+	}
+
+	private static int relativeRank(int color, int square) {
+		return (color == BitBoard.WHITE) ? 7 - BitBoard.row(square) : BitBoard.row(square);
+	}
+
+	private static int distance(int a, int b) {
+		return Math.max(Math.abs(BitBoard.row(a) - BitBoard.row(b)), Math.abs(BitBoard.column(a) - BitBoard.column(b)));
+	}
+}
@@ -0,0 +1,160 @@
+package engine;
+
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+// hands out the moves of one node in stages: hash move, winning and even captures by MVV-LVA, killers,
+// quiet moves by history, then the captures that lose material. Each stage is only generated and scored
+// once the previous one is used up, so a cutoff early on saves the work for the rest
+final class MovePicker {
+
+	private static final int HASH = 0;
+	private static final int CAPTURES_INIT = 1;
+	private static final int CAPTURES = 2;
+	private static final int KILLERS = 3;
+	private static final int QUIETS_INIT = 4;
+	private static final int QUIETS = 5;
+	private static final int BAD_CAPTURES = 6;
+	private static final int DONE = 7;
+
+	private final MoveList list = new MoveList();
+	private final int[] scores = new int[MoveList.CAPACITY];
+	// captures that the static exchange says lose material, held back until the quiet moves are tried
+	private final int[] badCaptures = new int[MoveList.CAPACITY];
+	private int badCount;
+
+	private BitBoard board;
+	private int[] history;
+	private int hashMove;
+	private int killer1;
+	private int killer2;
+	private int stage;
+	private int index;
+	private boolean tacticalOnly;
+
+	void init(BitBoard board, int hashMove, int killer1, int killer2, int[] history) {
+		this.board = board;
+		this.hashMove = hashMove;
+		this.killer1 = killer1;
+		this.killer2 = killer2;
+		this.history = history;
+		tacticalOnly = false;
+		badCount = 0;
+		stage = HASH;
+	}
+
+	// captures and promotions only, all of them in MVV-LVA order, for the quiescence search
+	void initQuiescence(BitBoard board) {
+		this.board = board;
+		hashMove = Move.NONE;
+		killer1 = Move.NONE;
+		killer2 = Move.NONE;
+		tacticalOnly = true;
+		badCount = 0;
+		stage = CAPTURES_INIT;
+	}
+
+	// the next move to try, or Move.NONE when there are no more
+	@SuppressWarnings("fallthrough")
+	int next() {
+		switch (stage) {
+			case HASH:
+				stage = CAPTURES_INIT;
+				if (hashMove != Move.NONE && MoveGenerator.isLegal(board, hashMove)) return hashMove;
+				hashMove = Move.NONE;
+				// fall through
+			case CAPTURES_INIT:
+				MoveGenerator.generateLegalCaptures(board, list);
+				for (int i = 0; i < list.size(); i++) {
+					scores[i] = mvvLva(list.get(i));
+				}
+				index = 0;
+				stage = CAPTURES;
+				// fall through
+			case CAPTURES:
+				while (index < list.size()) {
+					int move = pickBest(index++);
+					if (move == hashMove) continue;
+					if (!tacticalOnly && Move.promotion(move) == 0 && !StaticExchange.isAtLeast(board, move, 0)) {
+						badCaptures[badCount++] = move;
+						continue;
+					}
+					return move;
+				}
+				if (tacticalOnly) {
+					stage = DONE;
+					return Move.NONE;
+				}
+				stage = KILLERS;
+				index = 0;
+				// fall through
+			case KILLERS:
+				// killers come from sibling positions, so they have to be checked for legality here
+				while (index < 2) {
+					int killer = (index++ == 0) ? killer1 : killer2;
+					if (killer != Move.NONE && killer != hashMove && MoveGenerator.isLegal(board, killer)) return killer;
+				}
+				stage = QUIETS_INIT;
+				// fall through
+			case QUIETS_INIT:
+				MoveGenerator.generateLegalQuiets(board, list);
+				int color = board.getSideToMove();
+				for (int i = 0; i < list.size(); i++) {
+					scores[i] = history[historyIndex(color, list.get(i))];
+				}
+				index = 0;
+				stage = QUIETS;
+				// fall through
+			case QUIETS:
+				while (index < list.size()) {
+					int move = pickBest(index++);
+					if (move != hashMove && move != killer1 && move != killer2) return move;
+				}
+				stage = BAD_CAPTURES;
+				index = 0;
+				// fall through
+			case BAD_CAPTURES:
+				// already in MVV-LVA order
+				if (index < badCount) return badCaptures[index++];
+				stage = DONE;
+				// fall through
+			default:
+				return Move.NONE;
+		}
+	}
+
+	// butterfly index: side to move, from and to square
+	static int historyIndex(int color, int move) {
+		return (color << 12) | (Move.from(move) << 6) | Move.to(move);
+	}
+
+	// most valuable victim first, least valuable attacker among equal victims; a promotion counts its new piece
+	private int mvvLva(int move) {
+		int victim = 0;
+		if (Move.isEnPassant(move)) {
+			victim = Evaluation.PIECE_VALUES[BitBoard.PAWN];
+		} else if (Move.isCapture(move)) {
+			victim = Evaluation.PIECE_VALUES[BitBoard.typeOf(board.pieceAt(Move.to(move)))];
+		}
+		int attacker = BitBoard.typeOf(board.pieceAt(Move.from(move)));
+		int score = 10 * victim - attacker;
+		return (Move.promotion(move) != 0) ? score + 10 * Evaluation.PIECE_VALUES[Move.promotion(move)] : score;
+	}
+
+	// selection sort one step at a time
+	private int pickBest(int from) {
+		int best = from;
+		for (int i = from + 1; i < list.size(); i++) {
+			if (scores[i] > scores[best]) best = i;
+		}
+		int move = list.get(best);
+		int score = scores[best];
+		list.set(best, list.get(from));
+		scores[best] = scores[from];
+		list.set(from, move);
+		scores[from] = score;
+		return move;
+	}
+}
@@ -0,0 +1,129 @@
+package engine;
+
+import book.PolyglotBook;
+import chess.BitBoard;
+import chess.ChessMatch;
+import tablebase.Tablebases;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Lazy SMP: every thread runs its own iterative deepening search on its own copy of the position.
+// They only cooperate through the shared transposition table, where each finds what the others stored
+public class ParallelSearch implements AutoCloseable {
+
+	private final Search[] searches;
+	private final TranspositionTable table;
+	private final ExecutorService executor;
+	private PolyglotBook book;
+
+	public ParallelSearch(int threads, TranspositionTable table) {
+		if (threads < 1) throw new IllegalArgumentException("At least one search thread is needed");
+
+		this.table = table;
+		searches = new Search[threads];
+		for (int i = 0; i < threads; i++) {
+			searches[i] = new Search(table);
+		}
+		// the calling thread runs the main search, the pool only the helpers
+		executor = Executors.newFixedThreadPool(Math.max(threads - 1, 1), r -> {
+			Thread t = new Thread(r, "search");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public int getThreads() {
+		return searches.length;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	// positions in the book are answered from it without starting any thread; null turns the book off
+	public void setBook(PolyglotBook book) {
+		this.book = book;
+	}
+
+	// every thread stops at positions the tables cover; null turns them off
+	public void setTablebases(Tablebases tablebases) {
+		for (Search search : searches) {
+			search.setTablebases(tablebases);
+		}
+	}
+
+	public SearchResult bestMove(ChessMatch match, int depth) {
+		if (depth < 1 || depth >= Search.MAX_PLY) throw new IllegalArgumentException("Depth must be between 1 and " + (Search.MAX_PLY - 1));
+		return search(match, depth, Long.MAX_VALUE);
+	}
+
+	public SearchResult bestMove(ChessMatch match, Duration limit) {
+		return search(match, Search.MAX_PLY - 1, System.nanoTime() + limit.toNanos());
+	}
+
+	private SearchResult search(ChessMatch match, int maxDepth, long deadline) {
+		long start = System.nanoTime();
+		BitBoard position = match.copyBitBoard();
+		SearchResult fromBook = Search.bookMove(book, position);
+		if (fromBook != null) return fromBook;
+
+		table.newSearch();
+		for (Search search : searches) {
+			search.resetStop();
+		}
+
+		// helpers start on alternating depths and go one ply further than the main search, so they
+		// spread over different parts of the tree instead of repeating it in lockstep
+		List<Future<SearchResult>> helpers = new ArrayList<>();
+		for (int i = 1; i < searches.length; i++) {
+			Search helper = searches[i];
+			BitBoard copy = new BitBoard(position);
+			int startDepth = 1 + (i & 1);
+			int helperDepth = Math.min(maxDepth + 1, Search.MAX_PLY - 1);
+			helpers.add(executor.submit(() -> helper.search(copy, startDepth, helperDepth, deadline, true)));
+		}
+
+		// the calling thread runs the main search; once it is done the helpers have nothing left to add
+		SearchResult best = searches[0].search(position, 1, maxDepth, deadline, false);
+		for (int i = 1; i < searches.length; i++) {
+			searches[i].stop();
+		}
+
+		long nodes = searches[0].getNodes();
+		for (int i = 0; i < helpers.size(); i++) {
+			SearchResult result = join(helpers.get(i));
+			nodes += searches[i + 1].getNodes();
+			// a helper that completed a deeper iteration than the main search has the better move
+			if (result != null && result.getDepth() > best.getDepth()) best = result;
+		}
+		return new SearchResult(best.getScore(), best.getDepth(), best.getPv(), nodes, System.nanoTime() - start);
+	}
+
+	public void stop() {
+		for (Search search : searches) {
+			search.stop();
+		}
+	}
+
+	private SearchResult join(Future<SearchResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the search threads", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A search thread failed", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,61 @@
+package engine;
+
+// direct-mapped cache of pawn structure scores and passed pawns, keyed by the board's pawn key.
+// Pawn structure seldom changes between nodes, so nearly every lookup hits. Owned by a single search
+final class PawnTable {
+
+	private final long[] keys;
+	private final int[] middlegame;
+	private final int[] endgame;
+	private final long[] passed;
+	private final int mask;
+
+	private long probes;
+	private long hits;
+
+	PawnTable(int entries) {
+		if (Integer.bitCount(entries) != 1) throw new IllegalArgumentException("The number of entries must be a power of two");
+
+		keys = new long[entries];
+		middlegame = new int[entries];
+		endgame = new int[entries];
+		passed = new long[entries];
+		mask = entries - 1;
+		// an empty entry, key 0, is the position without pawns, whose scores are 0 anyway
+	}
+
+	int index(long key) {
+		return (int) key & mask;
+	}
+
+	boolean probe(int index, long key) {
+		probes++;
+		if (keys[index] != key) return false;
+		hits++;
+		return true;
+	}
+
+	void store(int index, long key, int middlegameScore, int endgameScore, long passedPawns) {
+		keys[index] = key;
+		middlegame[index] = middlegameScore;
+		endgame[index] = endgameScore;
+		passed[index] = passedPawns;
+	}
+
+	int middlegame(int index) {
+		return middlegame[index];
+	}
+
+	int endgame(int index) {
+		return endgame[index];
+	}
+
+	// passed pawns of both colors
+	long passed(int index) {
+		return passed[index];
+	}
+
+	double getHitRate() {
+		return (probes == 0) ? 0 : (double) hits / probes;
+	}
+}
@@ -0,0 +1,358 @@
+package engine;
+
+import book.PolyglotBook;
+import chess.BitBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import tablebase.Tablebase;
+import tablebase.Tablebases;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+// iterative deepening negamax with alpha-beta, principal variation search and aspiration windows. The
+// horizon is resolved by a quiescence search over captures and promotions
+public class Search {
+
+	public static final int INFINITY = 32767;
+	public static final int MATE = 32000;
+	public static final int MAX_PLY = 128;
+
+	private static final int ASPIRATION_WINDOW = 25;
+	private static final int ASPIRATION_DEPTH = 4;
+	private static final int DEFAULT_TABLE_MB = 16;
+	private static final int MAX_HISTORY = 1 << 20;
+	// the most a capture can gain beyond the victim's value through piece-square differences
+	private static final int DELTA_MARGIN = 200;
+
+	private final TranspositionTable table;
+	private final Evaluation evaluation = new Evaluation();
+	private BitBoard board;
+	private final MoveList rootMoves = new MoveList();
+	private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+	// quiet moves that caused a cutoff: two per ply, and a butterfly table over side, from and to square
+	private final int[][] killers = new int[MAX_PLY][2];
+	private final int[] history = new int[2 * 64 * 64];
+
+	// triangular PV table: pv[ply] holds the best line found from that ply on
+	private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+	private final int[] pvLength = new int[MAX_PLY];
+	private int[] previousPv = new int[0];
+	private boolean followPv;
+
+	private long nodes;
+	private long deadline;
+	private int completedDepth;
+	private boolean canStopEarly;
+	private boolean stopped;
+	private volatile boolean stopRequested;
+
+	private Consumer<SearchResult> listener;
+	private PolyglotBook book;
+	private Tablebases tablebases;
+
+	public Search() {
+		this(new TranspositionTable(DEFAULT_TABLE_MB));
+	}
+
+	// searches sharing a table, possibly from different threads, profit from each other's work
+	public Search(TranspositionTable table) {
+		this.table = table;
+		for (int i = 0; i < MAX_PLY; i++) {
+			pickers[i] = new MovePicker();
+		}
+	}
+
+	// called with the result of every completed iteration
+	public void setListener(Consumer<SearchResult> listener) {
+		this.listener = listener;
+	}
+
+	// positions in the book are answered from it without searching; null turns the book off
+	public void setBook(PolyglotBook book) {
+		this.book = book;
+	}
+
+	// positions the tables cover get their exact score instead of a subtree; null turns them off
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+
+	public SearchResult bestMove(ChessMatch match, int depth) {
+		if (depth < 1 || depth >= MAX_PLY) throw new IllegalArgumentException("Depth must be between 1 and " + (MAX_PLY - 1));
+		BitBoard position = match.copyBitBoard();
+		SearchResult fromBook = bookMove(book, position);
+		if (fromBook != null) return fromBook;
+
+		stopRequested = false;
+		table.newSearch();
+		return search(position, 1, depth, Long.MAX_VALUE, false);
+	}
+
+	// searches as deep as the time allows; the first iteration always completes
+	public SearchResult bestMove(ChessMatch match, Duration limit) {
+		BitBoard position = match.copyBitBoard();
+		SearchResult fromBook = bookMove(book, position);
+		if (fromBook != null) return fromBook;
+
+		stopRequested = false;
+		table.newSearch();
+		return search(position, 1, MAX_PLY - 1, System.nanoTime() + limit.toNanos(), false);
+	}
+
+	// a weighted random book move as a result of depth 0, or null when there is no book or no entry
+	static SearchResult bookMove(PolyglotBook book, BitBoard position) {
+		if (book == null) return null;
+		long start = System.nanoTime();
+		int move = book.pick(position, ThreadLocalRandom.current().nextLong());
+		if (move == Move.NONE) return null;
+		return new SearchResult(0, 0, new int[] {move}, 0, System.nanoTime() - start);
+	}
+
+	// ends a running search from another thread, keeping the last completed iteration
+	public void stop() {
+		stopRequested = true;
+	}
+
+	void resetStop() {
+		stopRequested = false;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	public Evaluation getEvaluation() {
+		return evaluation;
+	}
+
+	// nodes visited by the current or last search
+	public long getNodes() {
+		return nodes;
+	}
+
+	// a helper may start deeper than 1 and be stopped before completing any iteration
+	SearchResult search(BitBoard board, int startDepth, int maxDepth, long deadline, boolean helper) {
+		this.board = board;
+		if (!MoveGenerator.hasLegalMove(board, rootMoves)) throw new IllegalStateException("There is no legal move in this position");
+
+		this.deadline = deadline;
+		stopped = false;
+		nodes = 0;
+		completedDepth = 0;
+		canStopEarly = helper;
+		previousPv = new int[0];
+		for (int[] k : killers) {
+			Arrays.fill(k, Move.NONE);
+		}
+		// history from the previous search still helps, but should not outweigh what this one finds
+		for (int i = 0; i < history.length; i++) {
+			history[i] /= 2;
+		}
+
+		long start = System.nanoTime();
+		SearchResult result = null;
+		int score = 0;
+		for (int depth = startDepth; depth <= maxDepth; depth++) {
+			int delta = ASPIRATION_WINDOW;
+			int alpha = -INFINITY;
+			int beta = INFINITY;
+			if (depth >= ASPIRATION_DEPTH) {
+				alpha = Math.max(score - delta, -INFINITY);
+				beta = Math.min(score + delta, INFINITY);
+			}
+
+			// widen the window on the failing side until the score falls inside it
+			while (true) {
+				followPv = true;
+				score = negamax(depth, 0, alpha, beta);
+				if (stopped) break;
+
+				if (score <= alpha) {
+					alpha = Math.max(alpha - delta, -INFINITY);
+				} else if (score >= beta) {
+					beta = Math.min(beta + delta, INFINITY);
+				} else break;
+				delta *= 2;
+			}
+			if (stopped) break;
+
+			completedDepth = depth;
+			previousPv = new int[pvLength[0]];
+			System.arraycopy(pv[0], 0, previousPv, 0, pvLength[0]);
+			result = new SearchResult(score, depth, previousPv, nodes, System.nanoTime() - start);
+			if (listener != null) listener.accept(result);
+
+			if (result.isMate()) break;
+		}
+		return result;
+	}
+
+	private int negamax(int depth, int ply, int alpha, int beta) {
+		pvLength[ply] = ply;
+		if ((++nodes & 2047) == 0) checkTime();
+		if (stopped) return 0;
+
+		if (ply > 0 && board.isRepetition()) return 0;
+		if (ply > 0 && tablebases != null) {
+			int value = tablebases.probe(board);
+			if (value != Tablebase.NOT_FOUND) return tablebaseScore(value, ply);
+		}
+		if (depth == 0 || ply == MAX_PLY - 1) return quiescence(ply, alpha, beta);
+
+		// stored bounds only cut off outside the principal variation, so the PV stays complete
+		long entry = table.probe(board.getKey());
+		int hashMove = Move.NONE;
+		if (entry != TranspositionTable.NONE) {
+			hashMove = TranspositionTable.move(entry);
+			if (beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+				int score = TranspositionTable.score(entry, ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+					return score;
+				}
+			}
+		}
+
+		// the previous iteration's PV move goes first while the search is still on that line
+		int pvMove = (followPv && ply < previousPv.length) ? previousPv[ply] : Move.NONE;
+		followPv = pvMove != Move.NONE && MoveGenerator.isLegal(board, pvMove);
+		MovePicker picker = pickers[ply];
+		picker.init(board, followPv ? pvMove : hashMove, killers[ply][0], killers[ply][1], history);
+
+		int originalAlpha = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = Move.NONE;
+		int count = 0;
+		int move;
+		while ((move = picker.next()) != Move.NONE) {
+			board.makeMove(move);
+			int score;
+			if (count++ == 0) {
+				score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+			} else {
+				// prove the move is no better than the best one with a null window, search it fully only if it is
+				score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+				if (score > alpha && score < beta) score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+			}
+			board.undoMove();
+			followPv = false;
+			if (stopped) return 0;
+
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					pv[ply][ply] = move;
+					System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+					pvLength[ply] = pvLength[ply + 1];
+					if (alpha >= beta) {
+						if (!Move.isCapture(move) && Move.promotion(move) == 0) rememberQuiet(move, depth, ply);
+						break;
+					}
+				}
+			}
+		}
+		if (count == 0) return board.inCheck(board.getSideToMove()) ? -MATE + ply : 0;
+
+		int bound = (bestScore >= beta) ? TranspositionTable.LOWER_BOUND : (bestScore > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+		table.store(board.getKey(), bestMove, bestScore, depth, bound, ply);
+		return bestScore;
+	}
+
+	// only captures and promotions are searched, until the position is quiet. The side to move may stand
+	// pat on the static evaluation, except in check, where every evasion is tried
+	private int quiescence(int ply, int alpha, int beta) {
+		pvLength[ply] = ply;
+		if ((++nodes & 2047) == 0) checkTime();
+		if (stopped) return 0;
+		if (ply == MAX_PLY - 1) return evaluation.evaluate(board);
+
+		boolean inCheck = board.inCheck(board.getSideToMove());
+		int standPat = -INFINITY;
+		int bestScore = -INFINITY;
+		MovePicker picker = pickers[ply];
+		if (inCheck) {
+			picker.init(board, Move.NONE, Move.NONE, Move.NONE, history);
+		} else {
+			standPat = evaluation.evaluate(board);
+			if (standPat >= beta) return standPat;
+			if (standPat > alpha) alpha = standPat;
+			bestScore = standPat;
+			picker.initQuiescence(board);
+		}
+
+		int count = 0;
+		int move;
+		while ((move = picker.next()) != Move.NONE) {
+			count++;
+			if (!inCheck) {
+				int promotion = Move.promotion(move);
+				// a knight is the only underpromotion that can be worth it, and hardly ever before the horizon
+				if (promotion != 0 && promotion != BitBoard.QUEEN) continue;
+				// delta pruning: even winning the victim for free would not bring the score up to alpha
+				if (promotion == 0 && standPat + capturedValue(move) + DELTA_MARGIN <= alpha) continue;
+				if (promotion == 0 && !StaticExchange.isAtLeast(board, move, 0)) continue;
+			}
+
+			board.makeMove(move);
+			int score = -quiescence(ply + 1, -beta, -alpha);
+			board.undoMove();
+			if (stopped) return 0;
+
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					pv[ply][ply] = move;
+					System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+					pvLength[ply] = pvLength[ply + 1];
+					if (alpha >= beta) break;
+				}
+			}
+		}
+		if (inCheck && count == 0) return -MATE + ply;
+		return bestScore;
+	}
+
+	// the tables count plies to mate from the position, the search from the root. Mates further away than
+	// the search can reach are clamped to the edge of the mate band, so they are still read as mates
+	private static int tablebaseScore(int value, int ply) {
+		if (Tablebase.isWin(value)) return Math.max(MATE - ply - Tablebase.plies(value), MATE - MAX_PLY);
+		if (Tablebase.isLoss(value)) return Math.min(-MATE + ply + Tablebase.plies(value), -MATE + MAX_PLY);
+		return 0;
+	}
+
+	private int capturedValue(int move) {
+		if (Move.isEnPassant(move)) return Evaluation.PIECE_VALUES[BitBoard.PAWN];
+		return Evaluation.PIECE_VALUES[BitBoard.typeOf(board.pieceAt(Move.to(move)))];
+	}
+
+	private void rememberQuiet(int move, int depth, int ply) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+
+		int index = MovePicker.historyIndex(board.getSideToMove(), move);
+		history[index] += depth * depth;
+		// keep the scores well inside the int range by halving the whole table now and then
+		if (history[index] > MAX_HISTORY) {
+			for (int i = 0; i < history.length; i++) {
+				history[i] /= 2;
+			}
+		}
+	}
+
+	private void checkTime() {
+		// the first iteration always completes, so there is a move to return
+		if ((completedDepth > 0 || canStopEarly) && (stopRequested || System.nanoTime() >= deadline)) stopped = true;
+	}
+}
@@ -0,0 +1,97 @@
+package engine;
+
+import chess.BitBoard;
+import chess.ChessPosition;
+import chess.Move;
+
+public class SearchResult {
+
+	private static final String[] PROMOTIONS = {null, "N", "B", "R", "Q"};
+
+	private int move;
+	private int score;
+	private int depth;
+	private int[] pv;
+	private long nodes;
+	private long nanos;
+
+	public SearchResult(int score, int depth, int[] pv, long nodes, long nanos) {
+		this.move = pv[0];
+		this.score = score;
+		this.depth = depth;
+		this.pv = pv;
+		this.nodes = nodes;
+		this.nanos = nanos;
+	}
+
+	public int getMove() {
+		return move;
+	}
+
+	// origin and target in the form ChessMatch.performMove takes them
+	public ChessPosition getSource() {
+		return toChessPosition(Move.from(move));
+	}
+
+	public ChessPosition getTarget() {
+		return toChessPosition(Move.to(move));
+	}
+
+	// piece type for ChessMatch.replacePromotedPiece, or null when the move is not a promotion
+	public String getPromotion() {
+		return PROMOTIONS[Move.promotion(move)];
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public boolean isMate() {
+		return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int[] getPv() {
+		return pv.clone();
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public long getNodesPerSecond() {
+		return nodes * 1_000_000_000L / Math.max(nanos, 1);
+	}
+
+	private static ChessPosition toChessPosition(int square) {
+		return new ChessPosition((char) ('a' + BitBoard.column(square)), 8 - BitBoard.row(square));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("depth ").append(depth);
+		if (isMate()) {
+			// moves, not plies, to the mate; negative when the side to move is being mated
+			int plies = Search.MATE - Math.abs(score);
+			sb.append(" score mate ").append((score > 0) ? (plies + 1) / 2 : -(plies / 2));
+		} else {
+			sb.append(" score cp ").append(score);
+		}
+		sb.append(" nodes ").append(nodes);
+		sb.append(" nps ").append(getNodesPerSecond());
+		sb.append(" time ").append(nanos / 1_000_000);
+		sb.append(" pv");
+		for (int m : pv) {
+			sb.append(' ').append(Move.toString(m));
+		}
+		return sb.toString();
+	}
+}
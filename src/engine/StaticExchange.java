@@ -0,0 +1,147 @@
+package engine;
+
+import chess.Attacks;
+import chess.BitBoard;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveGenerator;
+
+// static exchange evaluation: the material balance of the capture sequence on one square, both sides
+// always recapturing with their least valuable attacker and free to stop when going on would lose.
+// Pieces uncovered behind the capturers (x-rays) join the exchange as it goes
+public final class StaticExchange {
+
+	// the king only matters as the last capturer, so its value just has to exceed everything else
+	private static final int[] VALUES = {100, 320, 330, 500, 900, 20000};
+
+	private StaticExchange() {
+	}
+
+	// material won by the move on its target square, in centipawns, for the side making it
+	public static int evaluate(ChessMatch match, ChessPosition source, ChessPosition target) {
+		BitBoard b = match.copyBitBoard();
+		int from = BitBoard.square(8 - source.getRow(), source.getColumn() - 'a');
+		int to = BitBoard.square(8 - target.getRow(), target.getColumn() - 'a');
+		int piece = b.pieceAt(from);
+		if (piece == BitBoard.NO_PIECE) throw new ChessException("There is no piece in such position");
+		if (BitBoard.colorOf(piece) != b.getSideToMove()) throw new ChessException("Such piece is not yours");
+		if ((MoveGenerator.targets(b, from) & (1L << to)) == 0) throw new ChessException("Chosen piece can't move to such position");
+
+		// a pawn reaching the last rank comes in as the queen performMove makes it
+		boolean promotes = BitBoard.typeOf(piece) == BitBoard.PAWN && (BitBoard.row(to) == 0 || BitBoard.row(to) == 7);
+		return evaluate(b, b.createMove(from, to, promotes ? BitBoard.QUEEN : 0));
+	}
+
+	public static int evaluate(BitBoard b, int move) {
+		if (Move.isCastling(move)) return 0;
+
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int side = BitBoard.colorOf(b.pieceAt(from));
+		int attacker = (Move.promotion(move) != 0) ? Move.promotion(move) : BitBoard.typeOf(b.pieceAt(from));
+
+		long occupied = b.getOccupied() ^ (1L << from);
+		if (Move.isEnPassant(move)) occupied ^= 1L << (to + ((side == BitBoard.WHITE) ? 8 : -8));
+		long attackers = attackersTo(b, to, occupied);
+
+		// gain[d] is what the side making the d-th capture has won if the exchange stopped right after it.
+		// Each entry is stored before knowing whether the capture can happen, and the last one is dropped
+		int[] gain = new int[32];
+		gain[0] = capturedValue(b, move);
+		int depth = 0;
+		while (true) {
+			depth++;
+			gain[depth] = VALUES[attacker] - gain[depth - 1];
+			// neither side can lose by stopping here, so the rest cannot change the outcome
+			if (Math.max(-gain[depth - 1], gain[depth]) < 0) break;
+
+			side ^= 1;
+			long own = attackers & b.getColorPieces(side);
+			if (own == 0) break;
+
+			attacker = leastValuable(b, own, side);
+			occupied ^= Long.lowestOneBit(own & b.getPieces(side, attacker));
+			attackers = (attackers | xrays(b, to, occupied, attacker)) & occupied;
+		}
+
+		while (--depth > 0) {
+			gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+		}
+		return gain[0];
+	}
+
+	// whether the move wins at least the threshold, without building the whole exchange or allocating
+	public static boolean isAtLeast(BitBoard b, int move, int threshold) {
+		if (Move.isCastling(move) || Move.promotion(move) != 0) return threshold <= 0;
+
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int side = BitBoard.colorOf(b.pieceAt(from));
+
+		int swap = capturedValue(b, move) - threshold;
+		if (swap < 0) return false;
+		swap = VALUES[BitBoard.typeOf(b.pieceAt(from))] - swap;
+		if (swap <= 0) return true;
+
+		long occupied = b.getOccupied() ^ (1L << from) ^ (1L << to);
+		if (Move.isEnPassant(move)) occupied ^= 1L << (to + ((side == BitBoard.WHITE) ? 8 : -8));
+		long attackers = attackersTo(b, to, occupied);
+
+		// res flips with every capture: 1 while the side that moved first is ahead of the threshold
+		int res = 1;
+		while (true) {
+			side ^= 1;
+			attackers &= occupied;
+			long own = attackers & b.getColorPieces(side);
+			if (own == 0) break;
+			res ^= 1;
+
+			int attacker = leastValuable(b, own, side);
+			// the king can only take last, when the other side has nothing left to recapture with
+			if (attacker == BitBoard.KING) return ((attackers & ~b.getColorPieces(side)) != 0) ? res == 0 : res == 1;
+
+			swap = VALUES[attacker] - swap;
+			if (swap < res) break;
+			occupied ^= Long.lowestOneBit(own & b.getPieces(side, attacker));
+			attackers |= xrays(b, to, occupied, attacker);
+		}
+		return res == 1;
+	}
+
+	private static int capturedValue(BitBoard b, int move) {
+		int value = 0;
+		if (Move.isEnPassant(move)) {
+			value = VALUES[BitBoard.PAWN];
+		} else if (b.pieceAt(Move.to(move)) != BitBoard.NO_PIECE) {
+			value = VALUES[BitBoard.typeOf(b.pieceAt(Move.to(move)))];
+		}
+		if (Move.promotion(move) != 0) value += VALUES[Move.promotion(move)] - VALUES[BitBoard.PAWN];
+		return value;
+	}
+
+	private static long attackersTo(BitBoard b, int square, long occupied) {
+		return (b.attackers(square, BitBoard.WHITE, occupied) | b.attackers(square, BitBoard.BLACK, occupied)) & occupied;
+	}
+
+	private static int leastValuable(BitBoard b, long attackers, int side) {
+		for (int type = BitBoard.PAWN; type < BitBoard.KING; type++) {
+			if ((attackers & b.getPieces(side, type)) != 0) return type;
+		}
+		return BitBoard.KING;
+	}
+
+	// sliders of both colors that a capture by this kind of piece may have uncovered
+	private static long xrays(BitBoard b, int square, long occupied, int attacker) {
+		long queens = b.getPieces(BitBoard.WHITE, BitBoard.QUEEN) | b.getPieces(BitBoard.BLACK, BitBoard.QUEEN);
+		long xrays = 0;
+		if (attacker == BitBoard.PAWN || attacker == BitBoard.BISHOP || attacker == BitBoard.QUEEN) {
+			xrays |= Attacks.bishop(square, occupied) & (b.getPieces(BitBoard.WHITE, BitBoard.BISHOP) | b.getPieces(BitBoard.BLACK, BitBoard.BISHOP) | queens);
+		}
+		if (attacker == BitBoard.ROOK || attacker == BitBoard.QUEEN) {
+			xrays |= Attacks.rook(square, occupied) & (b.getPieces(BitBoard.WHITE, BitBoard.ROOK) | b.getPieces(BitBoard.BLACK, BitBoard.ROOK) | queens);
+		}
+		return xrays;
+	}
+}
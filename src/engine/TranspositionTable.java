@@ -0,0 +1,142 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// shared by all search threads without locks: each entry is two longs, the key XORed with the data and the data.
+// A torn write from two threads racing on an entry no longer verifies against any key, so it reads as a miss.
+// Entries come in buckets of two: the first slot keeps the deepest result, the second always takes the newest
+public class TranspositionTable {
+
+	public static final long NONE = 0;
+
+	public static final int LOWER_BOUND = 1;
+	public static final int UPPER_BOUND = 2;
+	public static final int EXACT = 3;
+
+	private static final int BUCKET_BYTES = 32;
+	private static final int GENERATIONS = 64;
+	private static final int FILL_SAMPLE = 1000;
+
+	private final long[] table;
+	private final int mask;
+	private int generation;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) throw new IllegalArgumentException("The table needs at least 1 MB");
+
+		// largest power of two number of buckets that fits the budget
+		long buckets = Long.highestOneBit(megabytes * 1024L * 1024L / BUCKET_BYTES);
+		if (buckets > (1 << 28)) throw new IllegalArgumentException("The table is limited to " + ((1L << 28) * BUCKET_BYTES >> 20) + " MB");
+
+		table = new long[(int) buckets * 4];
+		mask = (int) buckets - 1;
+	}
+
+	public int getMegabytes() {
+		return (int) ((long) table.length * 8 >> 20);
+	}
+
+	// called once per search, so entries left over from earlier searches give way first
+	public void newSearch() {
+		generation = (generation + 1) % GENERATIONS;
+	}
+
+	// the entry's data, or NONE when the position is not stored
+	public long probe(long key) {
+		probes.increment();
+		int index = ((int) key & mask) << 2;
+		long data = table[index + 1];
+		if ((table[index] ^ data) != key) {
+			data = table[index + 3];
+			if ((table[index + 2] ^ data) != key) return NONE;
+		}
+		hits.increment();
+		return data;
+	}
+
+	public void store(long key, int move, int score, int depth, int bound, int ply) {
+		long data = (move & 0x7FFFFL)
+				| ((long) (toStored(score, ply) & 0xFFFF) << 19)
+				| ((long) depth << 35)
+				| ((long) bound << 43)
+				| ((long) generation << 45);
+		int index = ((int) key & mask) << 2;
+
+		// the deep slot is only given up for a result at least as deep, or when it is stale
+		long deep = table[index + 1];
+		if ((table[index] ^ deep) == key || deep == NONE || generation(deep) != generation || depth >= depth(deep)) {
+			table[index] = key ^ data;
+			table[index + 1] = data;
+		} else {
+			table[index + 2] = key ^ data;
+			table[index + 3] = data;
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0);
+		resetStatistics();
+	}
+
+	public long getProbes() {
+		return probes.sum();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public double getHitRate() {
+		long total = probes.sum();
+		return (total == 0) ? 0 : (double) hits.sum() / total;
+	}
+
+	// share of the slots holding entries from the current search, estimated from the first buckets
+	public double getFillRate() {
+		int buckets = Math.min(FILL_SAMPLE, mask + 1);
+		int used = 0;
+		for (int i = 0; i < buckets * 4; i += 2) {
+			if (table[i + 1] != NONE && generation(table[i + 1]) == generation) used++;
+		}
+		return used / (buckets * 2.0);
+	}
+
+	public void resetStatistics() {
+		probes.reset();
+		hits.reset();
+	}
+
+	public static int move(long data) {
+		return (int) (data & 0x7FFFF);
+	}
+
+	// mate scores are kept relative to the stored position and made relative to the root again here
+	public static int score(long data, int ply) {
+		int score = (short) (data >>> 19);
+		if (score >= Search.MATE - Search.MAX_PLY) return score - ply;
+		if (score <= -Search.MATE + Search.MAX_PLY) return score + ply;
+		return score;
+	}
+
+	public static int depth(long data) {
+		return (int) (data >>> 35) & 0xFF;
+	}
+
+	public static int bound(long data) {
+		return (int) (data >>> 43) & 3;
+	}
+
+	private static int generation(long data) {
+		return (int) (data >>> 45) & (GENERATIONS - 1);
+	}
+
+	private static int toStored(int score, int ply) {
+		if (score >= Search.MATE - Search.MAX_PLY) return score + ply;
+		if (score <= -Search.MATE + Search.MAX_PLY) return score - ply;
+		return score;
+	}
+}
@@ -0,0 +1,84 @@
+package explorer;
+
+import chess.Move;
+
+// the moves played from one position with their results, filled by OpeningTree.lookup. Kept and refilled
+// by the caller, so lookups allocate nothing
+public class MoveStatistics {
+
+	// more than the legal moves of any position
+	private static final int MAX_MOVES = 256;
+
+	private final int[] moves = new int[MAX_MOVES];
+	private final int[] white = new int[MAX_MOVES];
+	private final int[] draws = new int[MAX_MOVES];
+	private final int[] black = new int[MAX_MOVES];
+	private final int[] rated = new int[MAX_MOVES];
+	private final long[] ratingSums = new long[MAX_MOVES];
+	private int size;
+
+	public int size() {
+		return size;
+	}
+
+	// origin, target and promotion, for BitBoard.createMove
+	public int getMove(int i) {
+		return moves[i];
+	}
+
+	public int getFrom(int i) {
+		return Move.from(moves[i]);
+	}
+
+	public int getTo(int i) {
+		return Move.to(moves[i]);
+	}
+
+	public int getPromotion(int i) {
+		return Move.promotion(moves[i]);
+	}
+
+	public int getWhiteWins(int i) {
+		return white[i];
+	}
+
+	public int getDraws(int i) {
+		return draws[i];
+	}
+
+	public int getBlackWins(int i) {
+		return black[i];
+	}
+
+	public int getGames(int i) {
+		return white[i] + draws[i] + black[i];
+	}
+
+	// of the players making the move, 0 when none of them had a rating
+	public int getAverageRating(int i) {
+		return (rated[i] == 0) ? 0 : (int) ((ratingSums[i] + rated[i] / 2) / rated[i]);
+	}
+
+	// all the games through the position
+	public int getTotalGames() {
+		int total = 0;
+		for (int i = 0; i < size; i++) {
+			total += getGames(i);
+		}
+		return total;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	void add(int move, int white, int draws, int black, int rated, long ratingSum) {
+		if (size == MAX_MOVES) throw new IllegalStateException("Too many moves in one position");
+		moves[size] = move;
+		this.white[size] = white;
+		this.draws[size] = draws;
+		this.black[size] = black;
+		this.rated[size] = rated;
+		ratingSums[size++] = ratingSum;
+	}
+}
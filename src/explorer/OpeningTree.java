@@ -0,0 +1,190 @@
+package explorer;
+
+import chess.ChessException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// reads an opening tree through memory mappings of 1 GB each, which reach a block's worth past their
+// gigabyte as GameReader's do. Only the sparse index is read in: a lookup searches it for the one block
+// that can hold the position and decodes that block up to the position's moves. Lookups may run on
+// several threads at once
+public class OpeningTree implements AutoCloseable {
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	// first keys with the sign bit flipped, so a signed search orders them unsigned
+	private final long[] firstKeys;
+	// one more than the blocks, the index offset ending the last block
+	private final long[] offsets;
+	private final long entries;
+
+	public OpeningTree(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				long length = Math.min(size - start, (1L << SEGMENT_SHIFT) + TreeFormat.MAX_BLOCK_SIZE);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+
+			byte[] magic = new byte[TreeFormat.HEADER_SIZE];
+			if (size >= TreeFormat.HEADER_SIZE + TreeFormat.TRAILER_SIZE) segments[0].get(0, magic);
+			if (!Arrays.equals(magic, TreeFormat.MAGIC)) throw new ChessException("Not an opening tree: " + path);
+			long indexOffset = getLong(size - TreeFormat.TRAILER_SIZE);
+			long blocks = getLong(size - TreeFormat.TRAILER_SIZE + 8);
+			entries = getLong(size - TreeFormat.TRAILER_SIZE + 16);
+			if (indexOffset < TreeFormat.HEADER_SIZE || blocks < 0 || blocks > Integer.MAX_VALUE - 1
+					|| indexOffset + TreeFormat.INDEX_ENTRY_SIZE * blocks != size - TreeFormat.TRAILER_SIZE) {
+				throw new ChessException("Damaged opening tree: " + path);
+			}
+
+			firstKeys = new long[(int) blocks];
+			offsets = new long[(int) blocks + 1];
+			for (int i = 0; i < blocks; i++) {
+				firstKeys[i] = getLong(indexOffset + (long) TreeFormat.INDEX_ENTRY_SIZE * i) ^ Long.MIN_VALUE;
+				offsets[i] = getLong(indexOffset + (long) TreeFormat.INDEX_ENTRY_SIZE * i + 8);
+			}
+			offsets[(int) blocks] = indexOffset;
+			for (int i = 0; i < blocks; i++) {
+				if (offsets[i] >= offsets[i + 1] || offsets[i + 1] - offsets[i] > TreeFormat.MAX_BLOCK_SIZE
+						|| (i > 0 && firstKeys[i - 1] >= firstKeys[i])) {
+					throw new ChessException("Damaged opening tree: " + path);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// the number of moves over all positions
+	public long getEntries() {
+		return entries;
+	}
+
+	public int getBlocks() {
+		return firstKeys.length;
+	}
+
+	// fills the statistics with the moves played from the position, ordered by move, and returns how many
+	public int lookup(long key, MoveStatistics into) {
+		into.clear();
+		int block = Arrays.binarySearch(firstKeys, key ^ Long.MIN_VALUE);
+		// a miss gives where the key would go, after the block that could hold it
+		if (block < 0) block = -block - 2;
+		if (block < 0) return 0;
+		// a position's moves never leave their block
+		Cursor cursor = new Cursor(block);
+		while (cursor.next() && cursor.block == block) {
+			int order = Long.compareUnsigned(cursor.key, key);
+			if (order > 0) break;
+			if (order == 0) into.add(cursor.move, cursor.white, cursor.draws, cursor.black, cursor.rated, cursor.ratingSum);
+		}
+		return into.size();
+	}
+
+	// walks every entry in order, for merging trees
+	public Cursor cursor() {
+		return new Cursor(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private long getLong(long offset) {
+		return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+	}
+
+	// one entry at a time, from a block on to the end of the tree
+	public final class Cursor {
+
+		private int block;
+		private MappedByteBuffer segment;
+		private int position;
+		private int end;
+
+		private long key;
+		private int move;
+		private int white;
+		private int draws;
+		private int black;
+		private int rated;
+		private long ratingSum;
+
+		private Cursor(int block) {
+			this.block = block - 1;
+		}
+
+		// moves to the next entry, false at the end of the tree
+		public boolean next() {
+			while (position == end) {
+				if (block + 1 >= firstKeys.length) return false;
+				block++;
+				long offset = offsets[block];
+				segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+				position = (int) (offset & SEGMENT_MASK);
+				end = position + (int) (offsets[block + 1] - offset);
+			}
+			key = (firstKeys[block] ^ Long.MIN_VALUE) + readVarLong();
+			move = (int) readVarLong();
+			white = (int) readVarLong();
+			draws = (int) readVarLong();
+			black = (int) readVarLong();
+			rated = (int) readVarLong();
+			ratingSum = readVarLong();
+			if (position > end) throw new ChessException("Damaged opening tree block " + block);
+			return true;
+		}
+
+		public long getKey() {
+			return key;
+		}
+
+		public int getMove() {
+			return move;
+		}
+
+		public int getWhiteWins() {
+			return white;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		public int getBlackWins() {
+			return black;
+		}
+
+		// games with a rating for the side moving, and the sum of those ratings
+		public int getRated() {
+			return rated;
+		}
+
+		public long getRatingSum() {
+			return ratingSum;
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = segment.get(position++);
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) return value;
+			}
+			throw new ChessException("Damaged opening tree block " + block);
+		}
+	}
+}
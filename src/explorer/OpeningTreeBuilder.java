@@ -0,0 +1,219 @@
+package explorer;
+
+import archive.GameReader;
+import archive.PositionVisitor;
+import chess.BitBoard;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// builds an opening tree from game files in constant memory. Moves are counted in a table on the heap; when it
+// fills, its entries are sorted and written out as a tree of their own. Closing merges those runs, together
+// with the tree already at the target, into a new tree that then replaces it, so games are added to a tree
+// without replaying the ones it holds. Games without a result are left out
+public class OpeningTreeBuilder implements AutoCloseable {
+
+	private static final int TABLE_BITS = 20;
+	// half the table, to keep the probes short
+	private static final int RUN_SIZE = 1 << (TABLE_BITS - 1);
+	private static final int BUCKET_BITS = 16;
+	private static final String RUN = ".run";
+	private static final String MERGING = ".merge";
+
+	private final Path target;
+	private final int maxPlies;
+	private final List<Path> runs = new ArrayList<>();
+
+	private final long[] keys = new long[1 << TABLE_BITS];
+	private final int[] moves = new int[1 << TABLE_BITS];
+	private final int[] white = new int[1 << TABLE_BITS];
+	private final int[] draws = new int[1 << TABLE_BITS];
+	private final int[] black = new int[1 << TABLE_BITS];
+	private final int[] rated = new int[1 << TABLE_BITS];
+	private final long[] ratingSums = new long[1 << TABLE_BITS];
+	private int size;
+
+	// the game being replayed
+	private int result;
+	private int whiteElo;
+	private int blackElo;
+	private final PositionVisitor visitor = this::visit;
+
+	// counts the moves of the first maxPlies plies of each game
+	public OpeningTreeBuilder(Path target, int maxPlies) {
+		if (maxPlies < 1) throw new IllegalArgumentException("Invalid number of plies: " + maxPlies);
+		this.target = target;
+		this.maxPlies = maxPlies;
+		Arrays.fill(moves, -1);
+	}
+
+	// counts the moves of the games from first up to end, exclusive
+	public void addGames(GameReader reader, long first, long end) throws IOException {
+		BitBoard board = new BitBoard();
+		for (long game = first; game < end; game++) {
+			switch (reader.getResult(game)) {
+				case "1-0": result = 0; break;
+				case "1/2-1/2": result = 1; break;
+				case "0-1": result = 2; break;
+				default: continue;
+			}
+			whiteElo = reader.getWhiteElo(game);
+			blackElo = reader.getBlackElo(game);
+			reader.replay(game, board, visitor);
+			if (size >= RUN_SIZE) spill();
+		}
+	}
+
+	// merges the runs, and the tree at the target if there is one, into a new tree in its place
+	@Override
+	public void close() throws IOException {
+		Path merging = target.resolveSibling(target.getFileName() + MERGING);
+		List<OpeningTree> trees = new ArrayList<>();
+		try {
+			spill();
+			if (Files.exists(target)) trees.add(new OpeningTree(target));
+			for (Path run : runs) {
+				trees.add(new OpeningTree(run));
+			}
+			try (TreeWriter writer = new TreeWriter(merging)) {
+				merge(trees, writer);
+			}
+			for (OpeningTree tree : trees) {
+				tree.close();
+			}
+			trees.clear();
+			Files.move(merging, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			for (OpeningTree tree : trees) {
+				tree.close();
+			}
+			for (Path run : runs) {
+				Files.deleteIfExists(run);
+			}
+			Files.deleteIfExists(merging);
+		}
+	}
+
+	private void visit(long game, int ply, BitBoard board, int move) {
+		if (ply >= maxPlies || move == Move.NONE) return;
+		int elo = (board.getSideToMove() == BitBoard.WHITE) ? whiteElo : blackElo;
+		count(board.getKey(), Move.of(Move.from(move), Move.to(move), Move.promotion(move), 0), result, elo);
+	}
+
+	private void count(long key, int move, int result, int elo) {
+		int mask = (1 << TABLE_BITS) - 1;
+		int slot = (int) ((key ^ (move * 0x9E3779B97F4A7C15L)) >>> (64 - TABLE_BITS));
+		while (moves[slot] != -1 && (keys[slot] != key || moves[slot] != move)) {
+			slot = (slot + 1) & mask;
+		}
+		if (moves[slot] == -1) {
+			keys[slot] = key;
+			moves[slot] = move;
+			size++;
+		}
+		if (result == 0) white[slot]++;
+		else if (result == 1) draws[slot]++;
+		else black[slot]++;
+		if (elo > 0) {
+			rated[slot]++;
+			ratingSums[slot] += elo;
+		}
+	}
+
+	// writes the table as a run, sorted by a stable counting sort on the top bits of the keys and then an
+	// insertion sort of each bucket, which holds a handful of entries
+	private void spill() throws IOException {
+		if (size == 0) return;
+		int[] order = new int[size];
+		int[] starts = new int[(1 << BUCKET_BITS) + 1];
+		int shift = 64 - BUCKET_BITS;
+		for (int slot = 0; slot < moves.length; slot++) {
+			if (moves[slot] != -1) starts[(int) (keys[slot] >>> shift) + 1]++;
+		}
+		for (int bucket = 1; bucket < starts.length; bucket++) {
+			starts[bucket] += starts[bucket - 1];
+		}
+		int[] next = Arrays.copyOf(starts, starts.length);
+		for (int slot = 0; slot < moves.length; slot++) {
+			if (moves[slot] != -1) order[next[(int) (keys[slot] >>> shift)]++] = slot;
+		}
+		for (int bucket = 0; bucket < starts.length - 1; bucket++) {
+			for (int i = starts[bucket] + 1; i < starts[bucket + 1]; i++) {
+				int slot = order[i];
+				int j = i;
+				for (; j > starts[bucket] && compare(order[j - 1], slot) > 0; j--) {
+					order[j] = order[j - 1];
+				}
+				order[j] = slot;
+			}
+		}
+
+		Path run = target.resolveSibling(target.getFileName() + RUN + runs.size());
+		runs.add(run);
+		try (TreeWriter writer = new TreeWriter(run)) {
+			for (int slot : order) {
+				writer.write(keys[slot], moves[slot], white[slot], draws[slot], black[slot], rated[slot], ratingSums[slot]);
+			}
+		}
+		Arrays.fill(moves, -1);
+		Arrays.fill(white, 0);
+		Arrays.fill(draws, 0);
+		Arrays.fill(black, 0);
+		Arrays.fill(rated, 0);
+		Arrays.fill(ratingSums, 0);
+		size = 0;
+	}
+
+	private int compare(int a, int b) {
+		int order = Long.compareUnsigned(keys[a], keys[b]);
+		return (order != 0) ? order : Integer.compare(moves[a], moves[b]);
+	}
+
+	// a k-way merge, summing the counts of a move found in several trees. There are few trees, so the
+	// smallest entry is looked for among all of them
+	private static void merge(List<OpeningTree> trees, TreeWriter writer) throws IOException {
+		OpeningTree.Cursor[] cursors = new OpeningTree.Cursor[trees.size()];
+		int live = 0;
+		for (OpeningTree tree : trees) {
+			OpeningTree.Cursor cursor = tree.cursor();
+			if (cursor.next()) cursors[live++] = cursor;
+		}
+		while (live > 0) {
+			OpeningTree.Cursor smallest = cursors[0];
+			for (int i = 1; i < live; i++) {
+				if (compare(cursors[i], smallest) < 0) smallest = cursors[i];
+			}
+			long key = smallest.getKey();
+			int move = smallest.getMove();
+			int w = 0;
+			int d = 0;
+			int b = 0;
+			int r = 0;
+			long sum = 0;
+			for (int i = 0; i < live; i++) {
+				OpeningTree.Cursor cursor = cursors[i];
+				if (cursor.getKey() != key || cursor.getMove() != move) continue;
+				w += cursor.getWhiteWins();
+				d += cursor.getDraws();
+				b += cursor.getBlackWins();
+				r += cursor.getRated();
+				sum += cursor.getRatingSum();
+				if (!cursor.next()) {
+					cursors[i--] = cursors[--live];
+				}
+			}
+			writer.write(key, move, w, d, b, r, sum);
+		}
+	}
+
+	private static int compare(OpeningTree.Cursor a, OpeningTree.Cursor b) {
+		int order = Long.compareUnsigned(a.getKey(), b.getKey());
+		return (order != 0) ? order : Integer.compare(a.getMove(), b.getMove());
+	}
+}
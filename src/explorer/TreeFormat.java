@@ -0,0 +1,23 @@
+package explorer;
+
+// the opening tree file. After an eight-byte magic number come blocks of entries sorted on the position key,
+// taken unsigned, then the move; then the sparse index, each block's first key and offset; then a trailer
+// with the index offset, the number of blocks and the number of entries. Fixed numbers are big-endian.
+// A block holds a little over BLOCK_SIZE bytes, and never splits a position's moves. Each entry is varint
+// coded: the key's distance from the block's first key, the move, white's wins, the draws, black's wins,
+// how many of the games had a rating for the side moving, and the sum of those ratings. A move is its
+// origin, target and promotion packed as in Move, without the flags
+final class TreeFormat {
+
+	static final byte[] MAGIC = {'C', 'H', 'E', 'S', 'S', 'O', 'T', '1'};
+	static final int HEADER_SIZE = 8;
+	static final int TRAILER_SIZE = 24;
+	static final int INDEX_ENTRY_SIZE = 16;
+
+	static final int BLOCK_SIZE = 4096;
+	// a block's room, with a full position started just under BLOCK_SIZE
+	static final int MAX_BLOCK_SIZE = BLOCK_SIZE + 256 * 48;
+
+	private TreeFormat() {
+	}
+}
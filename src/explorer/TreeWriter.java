@@ -0,0 +1,93 @@
+package explorer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// writes an opening tree from entries given in order. The sparse index stays in memory until close writes it,
+// one key and offset for every few kilobytes of entries
+final class TreeWriter implements AutoCloseable {
+
+	private final DataOutputStream out;
+	private final byte[] block = new byte[TreeFormat.MAX_BLOCK_SIZE];
+	private int length;
+	private long position = TreeFormat.HEADER_SIZE;
+
+	private long[] firstKeys = new long[256];
+	private long[] offsets = new long[256];
+	private int blocks;
+	private long entries;
+	private long lastKey;
+	private int lastMove;
+
+	TreeWriter(Path path) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+		out.write(TreeFormat.MAGIC);
+	}
+
+	void write(long key, int move, int white, int draws, int black, int rated, long ratingSum) throws IOException {
+		if (entries > 0) {
+			int order = Long.compareUnsigned(key, lastKey);
+			if (order < 0 || (order == 0 && move <= lastMove)) throw new IllegalArgumentException("Entries out of order");
+		}
+		if (length == 0 || (key != lastKey && length >= TreeFormat.BLOCK_SIZE)) {
+			flush();
+			if (blocks == firstKeys.length) {
+				firstKeys = Arrays.copyOf(firstKeys, 2 * blocks);
+				offsets = Arrays.copyOf(offsets, 2 * blocks);
+			}
+			firstKeys[blocks] = key;
+			offsets[blocks++] = position;
+		}
+		putVarLong(key - firstKeys[blocks - 1]);
+		putVarLong(move);
+		putVarLong(white);
+		putVarLong(draws);
+		putVarLong(black);
+		putVarLong(rated);
+		putVarLong(ratingSum);
+		if (length > TreeFormat.MAX_BLOCK_SIZE - 64) throw new IllegalStateException("Too many moves in one position");
+		lastKey = key;
+		lastMove = move;
+		entries++;
+	}
+
+	long getEntries() {
+		return entries;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			long indexOffset = position;
+			for (int i = 0; i < blocks; i++) {
+				out.writeLong(firstKeys[i]);
+				out.writeLong(offsets[i]);
+			}
+			out.writeLong(indexOffset);
+			out.writeLong(blocks);
+			out.writeLong(entries);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void flush() throws IOException {
+		out.write(block, 0, length);
+		position += length;
+		length = 0;
+	}
+
+	// seven bits at a time, low first, the top bit set on all but the last byte
+	private void putVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			block[length++] = (byte) (value | 0x80);
+			value >>>= 7;
+		}
+		block[length++] = (byte) value;
+	}
+}
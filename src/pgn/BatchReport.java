@@ -0,0 +1,55 @@
+package pgn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// totals of a batch validation, with every game that had an illegal move, in file order
+public class BatchReport {
+
+	private long games;
+	private long plies;
+	private final List<GameResult> illegalGames = new ArrayList<>();
+	private long nanos;
+
+	void add(GameResult result) {
+		games++;
+		plies += result.getPlies();
+		if (!result.isLegal()) illegalGames.add(result);
+	}
+
+	// the other report covers the part of the file right after this one
+	void merge(BatchReport other) {
+		games += other.games;
+		plies += other.plies;
+		illegalGames.addAll(other.illegalGames);
+	}
+
+	void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getLegalGames() {
+		return games - illegalGames.size();
+	}
+
+	public long getPlies() {
+		return plies;
+	}
+
+	public List<GameResult> getIllegalGames() {
+		return Collections.unmodifiableList(illegalGames);
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public double getGamesPerSecond() {
+		return (nanos == 0) ? 0 : games * 1e9 / nanos;
+	}
+}
@@ -0,0 +1,116 @@
+package pgn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// validates every game of a PGN file on a fork-join pool. The file is halved at game boundaries until the
+// parts are small, and each part is replayed by its own reader, with its own boards and matches, so the
+// workers share nothing but the file
+public class BatchValidator {
+
+	// small enough to keep every worker busy until the end, large enough that splitting costs nothing
+	private static final long PART_SIZE = 4L << 20;
+	private static final int SCAN_BUFFER = 1 << 16;
+
+	private BatchValidator() {
+	}
+
+	public static BatchReport validate(Path path, int threads) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long start = System.nanoTime();
+			BatchReport report = pool.invoke(new Part(path, channel, 0, channel.size()));
+			report.setNanos(System.nanoTime() - start);
+			return report;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// where the first game starting at or after the offset begins, or the end if none does before it.
+	// A game begins with a tag on the line after a blank line, as the export format lays games out
+	static long boundary(FileChannel channel, long offset, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+		long position = Math.max(offset - 4, 0);
+		// newlines seen just before the current byte, a carriage return not breaking the run
+		int newlines = 0;
+		while (position < end) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) break;
+			for (int i = 0; i < read; i++) {
+				byte c = buffer.get(i);
+				if (c == '[' && newlines >= 2 && position + i >= offset) return position + i;
+				if (c == '\n') newlines++;
+				else if (c != '\r') newlines = 0;
+			}
+			position += read;
+		}
+		return end;
+	}
+
+	private static class Part extends RecursiveTask<BatchReport> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path path;
+		private final transient FileChannel channel;
+		private final long start;
+		private final long end;
+
+		Part(Path path, FileChannel channel, long start, long end) {
+			this.path = path;
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected BatchReport compute() {
+			try {
+				if (end - start > PART_SIZE) {
+					long middle = boundary(channel, start + (end - start) / 2, end);
+					if (middle < end) {
+						Part first = new Part(path, channel, start, middle);
+						first.fork();
+						BatchReport report = new Part(path, channel, middle, end).compute();
+						// the first half comes first in the file, so its games go first in the report
+						BatchReport firstReport = first.join();
+						firstReport.merge(report);
+						return firstReport;
+					}
+				}
+
+				BatchReport report = new BatchReport();
+				long from = start;
+				while (from < end) {
+					try (PgnReader reader = new PgnReader(path, from, end)) {
+						try {
+							GameResult result;
+							while ((result = reader.next()) != null) {
+								report.add(result);
+							}
+							from = end;
+						} catch (RuntimeException e) {
+							// the game that broke the reader is reported as illegal, and a new reader goes on from the next game
+							report.add(new GameResult(reader.getGames() + 1, reader.getGameOffset(), "*", 0, e.toString(), reader.position(), null,
+									null, 0, 0));
+							from = boundary(channel, reader.position(), end);
+						}
+					}
+				}
+				return report;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
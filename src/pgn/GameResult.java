@@ -0,0 +1,90 @@
+package pgn;
+
+// what replaying one game of a PGN file came to
+public class GameResult {
+
+	private final long number;
+	private final long offset;
+	private final String result;
+	private final int plies;
+	private final boolean legal;
+	private final String illegalMove;
+	private final long illegalOffset;
+	private final String startPosition;
+	private final String finalPosition;
+	private final int whiteElo;
+	private final int blackElo;
+
+	GameResult(long number, long offset, String result, int plies, String illegalMove, long illegalOffset, String startPosition,
+			String finalPosition, int whiteElo, int blackElo) {
+		this.number = number;
+		this.offset = offset;
+		this.result = result;
+		this.plies = plies;
+		this.legal = illegalMove == null;
+		this.illegalMove = illegalMove;
+		this.illegalOffset = illegalOffset;
+		this.startPosition = startPosition;
+		this.finalPosition = finalPosition;
+		this.whiteElo = whiteElo;
+		this.blackElo = blackElo;
+	}
+
+	// counted from 1 in file order, or in the part of the file one reader was given
+	public long getNumber() {
+		return number;
+	}
+
+	// byte offset of the game's first character in the file
+	public long getOffset() {
+		return offset;
+	}
+
+	// the game termination marker: 1-0, 0-1, 1/2-1/2 or *
+	public String getResult() {
+		return result;
+	}
+
+	// moves replayed, up to the first illegal one
+	public int getPlies() {
+		return plies;
+	}
+
+	public boolean isLegal() {
+		return legal;
+	}
+
+	// the first move that could not be played, as written in the file, or null
+	public String getIllegalMove() {
+		return illegalMove;
+	}
+
+	public long getIllegalOffset() {
+		return illegalOffset;
+	}
+
+	// FEN of the FEN tag, or null for a game from the initial position
+	public String getStartPosition() {
+		return startPosition;
+	}
+
+	// FEN of the position after the last legal move
+	public String getFinalPosition() {
+		return finalPosition;
+	}
+
+	// the WhiteElo and BlackElo tags, 0 when missing
+	public int getWhiteElo() {
+		return whiteElo;
+	}
+
+	public int getBlackElo() {
+		return blackElo;
+	}
+
+	@Override
+	public String toString() {
+		String status = legal ? "legal" : "illegal move " + illegalMove + " at byte " + illegalOffset;
+		return "game " + number + " at byte " + offset + ": " + status + ", " + plies + " plies, " + result + ", " + finalPosition;
+	}
+}
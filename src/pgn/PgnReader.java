@@ -0,0 +1,338 @@
+package pgn;
+
+import chess.BitBoard;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.MatchListener;
+import chess.Move;
+import chess.San;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// reads a PGN file one game at a time through memory-mapped windows, replaying every game through
+// ChessMatch. Tokens are read into fixed buffers and moves resolved on a reused board, so memory stays
+// the same however large the file is; only the per-game result is allocated
+public class PgnReader implements AutoCloseable {
+
+	private static final long WINDOW = 64L << 20;
+	private static final int MAX_TOKEN = 64;
+	private static final int MAX_TAG = 128;
+
+	private static final String[] PROMOTIONS = {null, "N", "B", "R", "Q"};
+	private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+	static {
+		for (int square = 0; square < 64; square++) {
+			POSITIONS[square] = new ChessPosition((char) ('a' + BitBoard.column(square)), 8 - BitBoard.row(square));
+		}
+	}
+
+	private final FileChannel channel;
+	private final long size;
+	private final long end;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int pushback = -1;
+
+	private final byte[] token = new byte[MAX_TOKEN];
+	private int tokenLength;
+	private boolean tokenTooLong;
+	private long tokenOffset;
+	private final byte[] tagName = new byte[MAX_TAG];
+	private final StringBuilder tagValue = new StringBuilder(MAX_TAG);
+	private final StringBuilder fen = new StringBuilder(MAX_TAG);
+
+	private final BitBoard board = new BitBoard();
+	private ChessMatch match;
+	private MatchListener listener;
+	private int whiteElo;
+	private int blackElo;
+	private long games;
+	private long gameOffset;
+
+	public PgnReader(Path path) throws IOException {
+		this(path, 0, Long.MAX_VALUE);
+	}
+
+	// only the games that begin in the range; the start has to be where a game begins, or 0
+	public PgnReader(Path path, long start, long end) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		size = channel.size();
+		this.end = end;
+		windowStart = Math.min(start, size);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW, size - windowStart));
+	}
+
+	// set on the match of every game from the next one on, to see its moves as they are replayed
+	public void setListener(MatchListener listener) {
+		this.listener = listener;
+	}
+
+	// games returned so far
+	long getGames() {
+		return games;
+	}
+
+	// where the game being read, or the last one read, begins
+	long getGameOffset() {
+		return gameOffset;
+	}
+
+	// the next game replayed, or null at the end of the file or range
+	public GameResult next() throws IOException {
+		int c = skipWhitespace(read());
+		if (c == -1) return null;
+		long offset = position() - 1;
+		if (offset >= end) return null;
+		gameOffset = offset;
+
+		fen.setLength(0);
+		whiteElo = 0;
+		blackElo = 0;
+		while (c == '[') {
+			readTag();
+			c = skipWhitespace(read());
+		}
+
+		String illegalMove = null;
+		long illegalOffset = -1;
+		try {
+			if (fen.length() == 0) {
+				Fen.parse(Fen.INITIAL, board);
+				match = new ChessMatch();
+			} else {
+				Fen.parse(fen, board);
+				match = ChessMatch.fromFen(fen);
+			}
+			match.setListener(listener);
+		} catch (ChessException e) {
+			illegalMove = "[FEN \"" + fen + "\"]";
+			illegalOffset = offset;
+		}
+
+		int plies = 0;
+		String result = "*";
+		while (c != -1) {
+			if (c == '[') {
+				// the next game, this one never had its termination marker
+				pushback = c;
+				break;
+			}
+
+			if (c == '{') {
+				skipPast('}');
+			} else if (c == ';' || c == '%') {
+				skipPast('\n');
+			} else if (c == '(') {
+				skipVariation();
+			} else if (!isWhitespace(c) && c != ')' && c != '}') {
+				readToken(c);
+				String termination = termination();
+				if (termination != null) {
+					result = termination;
+					break;
+				}
+				int start = moveStart();
+				if (start < tokenLength && illegalMove == null) {
+					if (play(start)) {
+						plies++;
+					} else {
+						illegalMove = new String(token, start, tokenLength - start, StandardCharsets.US_ASCII);
+						illegalOffset = tokenOffset + start;
+					}
+				}
+			}
+			c = read();
+		}
+
+		games++;
+		String start = (fen.length() == 0) ? null : fen.toString();
+		return new GameResult(games, offset, result, plies, illegalMove, illegalOffset, start, Fen.toFen(board), whiteElo, blackElo);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// plays the move written from the index on in the token, on the board and through the match. Whatever
+	// goes wrong with it only makes this game illegal, and the rest of the file is still read
+	private boolean play(int start) {
+		if (tokenTooLong) return false;
+		try {
+			int move = San.parse(board, token, start, tokenLength - start);
+			if (move == Move.NONE) return false;
+
+			match.performMove(POSITIONS[Move.from(move)], POSITIONS[Move.to(move)]);
+			int promotion = Move.promotion(move);
+			// the match promotes to a queen by itself
+			if (promotion != 0 && promotion != BitBoard.QUEEN) match.replacePromotedPiece(PROMOTIONS[promotion]);
+			board.makeMove(move);
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	// where the move starts in the token, after a move number such as 12. or 12... that may be glued to it.
+	// The token length if there is no move at all
+	private int moveStart() {
+		// numeric annotation glyphs such as $1, and the older !? marks written apart from the move
+		if (token[0] == '$' || token[0] == '!' || token[0] == '?') return tokenLength;
+		// e.p. after an en passant capture is a remark, not a move
+		if (tokenLength == 4 && token[0] == 'e' && token[1] == '.' && token[2] == 'p' && token[3] == '.') return tokenLength;
+		if (token[0] < '0' || token[0] > '9') return 0;
+
+		int i = 0;
+		while (i < tokenLength && token[i] >= '0' && token[i] <= '9') {
+			i++;
+		}
+		if (i == tokenLength) return tokenLength;
+		// castling written with zeros
+		if (token[i] != '.') return 0;
+		while (i < tokenLength && token[i] == '.') {
+			i++;
+		}
+		return i;
+	}
+
+	private String termination() {
+		if (matches("1-0")) return "1-0";
+		if (matches("0-1")) return "0-1";
+		if (matches("1/2-1/2")) return "1/2-1/2";
+		if (matches("*")) return "*";
+		return null;
+	}
+
+	private boolean matches(String s) {
+		if (tokenLength != s.length()) return false;
+		for (int i = 0; i < tokenLength; i++) {
+			if (token[i] != s.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	// [Name "value"]; only the FEN tag, for games that start elsewhere, and the ratings are kept
+	private void readTag() throws IOException {
+		int nameLength = 0;
+		int c = skipWhitespace(read());
+		while (c != -1 && !isWhitespace(c) && c != '"' && c != ']') {
+			if (nameLength < MAX_TAG) tagName[nameLength++] = (byte) c;
+			c = read();
+		}
+		c = skipWhitespace(c);
+
+		tagValue.setLength(0);
+		if (c == '"') {
+			c = read();
+			while (c != -1 && c != '"') {
+				if (c == '\\') c = read();
+				if (c != -1 && tagValue.length() < MAX_TAG) tagValue.append((char) c);
+				c = read();
+			}
+		}
+		while (c != -1 && c != ']' && c != '\n') {
+			c = read();
+		}
+
+		if (nameLength == 3 && tagName[0] == 'F' && tagName[1] == 'E' && tagName[2] == 'N') {
+			fen.setLength(0);
+			fen.append(tagValue);
+		} else if (isTag("WhiteElo", nameLength)) {
+			whiteElo = rating();
+		} else if (isTag("BlackElo", nameLength)) {
+			blackElo = rating();
+		}
+	}
+
+	private boolean isTag(String name, int nameLength) {
+		if (nameLength != name.length()) return false;
+		for (int i = 0; i < nameLength; i++) {
+			if (tagName[i] != name.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	// the tag value as a rating of up to four digits; 0 when missing or not a number, such as "?" or "-"
+	private int rating() {
+		int rating = 0;
+		for (int i = 0; i < tagValue.length(); i++) {
+			char c = tagValue.charAt(i);
+			if (c < '0' || c > '9' || rating >= 1000) return 0;
+			rating = rating * 10 + (c - '0');
+		}
+		return rating;
+	}
+
+	// reads the token starting with the character, up to the next delimiter, which is left unread
+	private void readToken(int c) throws IOException {
+		tokenOffset = position() - 1;
+		tokenLength = 0;
+		tokenTooLong = false;
+		while (c != -1 && !isWhitespace(c) && c != '{' && c != '}' && c != '(' && c != ')' && c != ';' && c != '[') {
+			// an overlong token is cut short, and can never be a move
+			if (tokenLength < MAX_TOKEN) token[tokenLength++] = (byte) c;
+			else tokenTooLong = true;
+			c = read();
+		}
+		if (c != -1) pushback = c;
+	}
+
+	private void skipVariation() throws IOException {
+		int depth = 1;
+		int c;
+		while (depth > 0 && (c = read()) != -1) {
+			if (c == '(') depth++;
+			else if (c == ')') depth--;
+			else if (c == '{') skipPast('}');
+			else if (c == ';') skipPast('\n');
+		}
+	}
+
+	private void skipPast(int end) throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c != -1 && c != end);
+	}
+
+	private int skipWhitespace(int c) throws IOException {
+		while (c != -1 && isWhitespace(c)) {
+			c = read();
+		}
+		return c;
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+
+	// the next byte, or -1 at the end of the file. Windows are mapped one after the other, and a token
+	// running over the edge of one simply carries on into the next
+	private int read() throws IOException {
+		if (pushback >= 0) {
+			int c = pushback;
+			pushback = -1;
+			return c;
+		}
+		if (!window.hasRemaining()) {
+			long next = windowStart + window.limit();
+			if (next >= size) return -1;
+			windowStart = next;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW, size - next));
+		}
+		return window.get() & 0xFF;
+	}
+
+	// offset in the file of the next byte read
+	long position() {
+		return windowStart + window.position() - ((pushback >= 0) ? 1 : 0);
+	}
+}
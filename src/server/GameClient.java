@@ -0,0 +1,71 @@
+package server;
+
+import chess.ChessException;
+import chess.Move;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// a connection to a game server on this machine, sending one command at a time and waiting for its reply
+public class GameClient implements AutoCloseable {
+
+	private static final String[] PROMOTIONS = {null, "N", "B", "R", "Q"};
+
+	private final Socket socket;
+	private final BufferedReader in;
+	private final Writer out;
+
+	public GameClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			socket.setTcpNoDelay(true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	// the reply to the command, OK or ERR and what follows
+	public String send(String command) throws IOException {
+		out.write(command);
+		out.write('\n');
+		out.flush();
+		String reply = in.readLine();
+		if (reply == null) throw new IOException("The server closed the connection");
+		return reply;
+	}
+
+	// starts a match from the initial position and returns its number
+	public long newMatch() throws IOException {
+		String reply = send("NEW");
+		if (!reply.startsWith("OK ")) throw new ChessException(reply);
+		return Long.parseLong(reply.substring(3));
+	}
+
+	// the move's origin, target and promotion as Move packs them; the reply is returned as it came
+	public String move(long match, int move) throws IOException {
+		StringBuilder command = new StringBuilder("MOVE ").append(match).append(' ')
+				.append(Move.squareName(Move.from(move))).append(' ').append(Move.squareName(Move.to(move)));
+		if (Move.promotion(move) != 0) command.append(' ').append(PROMOTIONS[Move.promotion(move)]);
+		return send(command.toString());
+	}
+
+	public void endMatch(long match) throws IOException {
+		String reply = send("END " + match);
+		if (!reply.equals("OK")) throw new ChessException(reply);
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
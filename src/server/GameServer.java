@@ -0,0 +1,194 @@
+package server;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPosition;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// hosts many matches for clients on the loopback interface, one line per command and one line per reply:
+//   NEW [fen]                     OK <match>
+//   MOVE <match> <from> <to> [B|N|R|Q]   OK [CHECK|CHECKMATE]
+//   FEN <match>                   OK <fen>
+//   END <match>                   OK
+//   QUIT                          OK, and the connection closes
+// A failed command is answered ERR <message>. Any connection may move in any match, so two players can
+// share one; the matches a connection started end with it. Each connection has a thread of its own that
+// blocks on its socket, and a match is only touched while holding its lock, as ChessMatch is not thread-safe
+public class GameServer implements AutoCloseable {
+
+	// connection threads only need a shallow stack, and there are thousands of them
+	private static final long STACK_SIZE = 256 * 1024;
+	private static final int BACKLOG = 4096;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService executor;
+	private final Map<Long, ChessMatch> matches = new ConcurrentHashMap<>();
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicLong nextMatch = new AtomicLong(1);
+	private final AtomicLong moves = new AtomicLong();
+	private Thread acceptor;
+
+	// listens on the port, or on any free one with 0
+	public GameServer(int port) throws IOException {
+		serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+		executor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(null, r, "connection", STACK_SIZE);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getMatches() {
+		return matches.size();
+	}
+
+	public int getConnections() {
+		return connections.size();
+	}
+
+	// moves made since the server started
+	public long getMoves() {
+		return moves.get();
+	}
+
+	// accepts connections on a thread of its own until close
+	public synchronized void start() {
+		if (acceptor != null) throw new IllegalStateException("The server is already started");
+		acceptor = new Thread(this::accept, "acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+		executor.shutdownNow();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.add(socket);
+				executor.execute(() -> serve(socket));
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) System.err.println("accept: " + e.getMessage());
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		Set<Long> started = new HashSet<>();
+		try (socket;
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] words = line.trim().split(" +");
+				if (words[0].equals("QUIT")) {
+					out.write("OK\n");
+					break;
+				}
+				out.write(execute(words, started));
+				out.write('\n');
+				out.flush();
+			}
+		} catch (SocketException e) {
+			// the client went away, or the server is closing
+		} catch (IOException e) {
+			System.err.println("connection: " + e.getMessage());
+		} finally {
+			connections.remove(socket);
+			for (Long id : started) {
+				matches.remove(id);
+			}
+		}
+	}
+
+	private String execute(String[] words, Set<Long> started) {
+		try {
+			switch (words[0]) {
+				case "NEW": {
+					ChessMatch match = (words.length == 1) ? new ChessMatch() : ChessMatch.fromFen(join(words, 1));
+					long id = nextMatch.getAndIncrement();
+					matches.put(id, match);
+					started.add(id);
+					return "OK " + id;
+				}
+				case "MOVE": {
+					if (words.length != 4 && words.length != 5) return "ERR Usage: MOVE <match> <from> <to> [B|N|R|Q]";
+					ChessPosition from = position(words[2]);
+					ChessPosition to = position(words[3]);
+					String promotion = (words.length == 5) ? words[4] : "Q";
+					if (promotion.length() != 1 || "BNRQ".indexOf(promotion.charAt(0)) < 0) return "ERR Promotion to B, N, R or Q";
+					ChessMatch match = match(words[1]);
+					synchronized (match) {
+						if (match.getCheckMate()) return "ERR The match is over";
+						match.performMove(from, to);
+						if (match.getPromoted() != null && !promotion.equals("Q")) match.replacePromotedPiece(promotion);
+						moves.incrementAndGet();
+						return match.getCheckMate() ? "OK CHECKMATE" : match.getCheck() ? "OK CHECK" : "OK";
+					}
+				}
+				case "FEN": {
+					ChessMatch match = match(words[1]);
+					synchronized (match) {
+						return "OK " + match.toFen();
+					}
+				}
+				case "END": {
+					Long id = Long.valueOf(words[1]);
+					if (matches.remove(id) == null) return "ERR No match " + id;
+					started.remove(id);
+					return "OK";
+				}
+				default:
+					return "ERR Unknown command " + words[0];
+			}
+		} catch (ChessException | IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+			return "ERR " + e.getMessage();
+		}
+	}
+
+	private ChessMatch match(String id) {
+		ChessMatch match = matches.get(Long.valueOf(id));
+		if (match == null) throw new ChessException("No match " + id);
+		return match;
+	}
+
+	private static ChessPosition position(String square) {
+		if (square.length() != 2) throw new ChessException("Only positions from a1 to h8 are valid.");
+		return new ChessPosition(square.charAt(0), square.charAt(1) - '0');
+	}
+
+	private static String join(String[] words, int from) {
+		return String.join(" ", List.of(words).subList(from, words.length));
+	}
+}
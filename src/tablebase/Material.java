@@ -0,0 +1,149 @@
+package tablebase;
+
+import chess.BitBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the pieces of an endgame, written like KRKP: the first side's king and pieces, then the other side's.
+// Pieces are indexed in that order, the first side playing white, and each side's pieces are sorted
+// strongest first so one set of pieces always has one name
+final class Material {
+
+	static final int MAX_PIECES = 4;
+
+	private static final String LETTERS = "PNBRQK";
+	private static final String ORDER = "QRBNP";
+
+	private final String signature;
+	private final int[] pieces;
+	// which of the identical pieces before it each piece is, to find it in the board's piece lists
+	private final int[] occurrence;
+	private final boolean pawns;
+
+	private Material(String signature) {
+		this.signature = signature;
+		pieces = new int[signature.length()];
+		occurrence = new int[pieces.length];
+		int color = BitBoard.WHITE;
+		boolean whitePawns = false;
+		boolean blackPawns = false;
+		for (int i = 0; i < pieces.length; i++) {
+			int type = LETTERS.indexOf(signature.charAt(i));
+			if (i > 0 && type == BitBoard.KING) color = BitBoard.BLACK;
+			pieces[i] = BitBoard.piece(color, type);
+			for (int j = 0; j < i; j++) {
+				if (pieces[j] == pieces[i]) occurrence[i]++;
+			}
+			if (type == BitBoard.PAWN && color == BitBoard.WHITE) whitePawns = true;
+			if (type == BitBoard.PAWN && color == BitBoard.BLACK) blackPawns = true;
+		}
+		// a double push could then leave an en passant capture, which the index has no room for
+		if (whitePawns && blackPawns) throw new IllegalArgumentException("Pawns on both sides are not supported: " + signature);
+		pawns = whitePawns || blackPawns;
+	}
+
+	static Material of(String signature) {
+		String s = signature.trim().toUpperCase();
+		int second = s.indexOf('K', 1);
+		if (s.isEmpty() || s.charAt(0) != 'K' || second < 0 || s.indexOf('K', second + 1) >= 0) {
+			throw new IllegalArgumentException("Invalid endgame: " + signature + " (expected two kings, as in KRKP)");
+		}
+		if (s.length() > MAX_PIECES) throw new IllegalArgumentException("At most " + MAX_PIECES + " pieces are supported: " + signature);
+		for (int i = 0; i < s.length(); i++) {
+			if (LETTERS.indexOf(s.charAt(i)) < 0) throw new IllegalArgumentException("Invalid piece " + s.charAt(i) + " in " + signature);
+		}
+		String first = sort(s.substring(1, second));
+		String other = sort(s.substring(second + 1));
+		// the stronger side plays white; with equal pieces either side does
+		boolean swap = compare(first, other) < 0;
+		return new Material("K" + (swap ? other : first) + "K" + (swap ? first : other));
+	}
+
+	String getSignature() {
+		return signature;
+	}
+
+	int size() {
+		return pieces.length;
+	}
+
+	int piece(int index) {
+		return pieces[index];
+	}
+
+	int occurrence(int index) {
+		return occurrence[index];
+	}
+
+	boolean hasPawns() {
+		return pawns;
+	}
+
+	// the endgames one capture or one promotion leads to, which have to be known before this one
+	List<Material> successors() {
+		List<Material> list = new ArrayList<>();
+		for (int i = 0; i < signature.length(); i++) {
+			char c = signature.charAt(i);
+			if (c == 'K') continue;
+			add(list, signature.substring(0, i) + signature.substring(i + 1));
+			if (c == 'P') {
+				for (char promoted : "QRBN".toCharArray()) {
+					add(list, signature.substring(0, i) + promoted + signature.substring(i + 1));
+				}
+			}
+		}
+		return list;
+	}
+
+	// the counts of every piece but the kings, four bits each, so equal material gives equal keys
+	static long key(BitBoard b) {
+		long key = 0;
+		for (int piece = 0; piece < 12; piece++) {
+			if (BitBoard.typeOf(piece) != BitBoard.KING) key |= (long) b.pieceCount(piece) << (4 * piece);
+		}
+		return key;
+	}
+
+	long key(boolean swapped) {
+		long key = 0;
+		for (int piece : pieces) {
+			if (BitBoard.typeOf(piece) == BitBoard.KING) continue;
+			int color = BitBoard.colorOf(piece) ^ (swapped ? 1 : 0);
+			key += 1L << (4 * BitBoard.piece(color, BitBoard.typeOf(piece)));
+		}
+		return key;
+	}
+
+	@Override
+	public String toString() {
+		return signature;
+	}
+
+	private static void add(List<Material> list, String signature) {
+		Material m = of(signature);
+		for (Material other : list) {
+			if (other.signature.equals(m.signature)) return;
+		}
+		list.add(m);
+	}
+
+	private static String sort(String side) {
+		StringBuilder sb = new StringBuilder();
+		for (char c : ORDER.toCharArray()) {
+			for (int i = 0; i < side.length(); i++) {
+				if (side.charAt(i) == c) sb.append(c);
+			}
+		}
+		if (sb.length() != side.length()) throw new IllegalArgumentException("Invalid endgame side: K" + side);
+		return sb.toString();
+	}
+
+	// piece by piece from the strongest; a side that runs out first is the weaker
+	private static int compare(String a, String b) {
+		for (int i = 0; i < Math.min(a.length(), b.length()); i++) {
+			if (a.charAt(i) != b.charAt(i)) return ORDER.indexOf(b.charAt(i)) - ORDER.indexOf(a.charAt(i));
+		}
+		return a.length() - b.length();
+	}
+}
@@ -0,0 +1,201 @@
+package tablebase;
+
+import chess.BitBoard;
+import chess.ChessException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// one endgame's distance to mate for every position, one byte each, in a file that is mapped rather than
+// read. Only one position of each set of mirror images is stored: the first king is kept on files a to d,
+// and without pawns in the triangle a8-a5-d5. A byte is 0 for a draw, 1 to 127 for a win in that many
+// moves and 128 plus n for being mated in n moves
+public class Tablebase implements AutoCloseable {
+
+	public static final int NOT_FOUND = -1;
+	public static final int DRAW = 0;
+	// the longest mate that fits in a byte, in plies
+	public static final int MAX_PLIES = 253;
+
+	// impossible positions: the side not to move in check, two pieces on one square, a pawn on the last rank
+	static final int ILLEGAL = 255;
+
+	static final String EXTENSION = ".tb";
+	static final int HEADER_SIZE = 16;
+	private static final String MAGIC = "CHESSTB1";
+
+	// where the first king may stand in a stored position, numbered densely
+	private static final int[] HALF_BOARD = new int[64];
+	private static final int[] TRIANGLE = new int[64];
+
+	static {
+		Arrays.fill(HALF_BOARD, -1);
+		Arrays.fill(TRIANGLE, -1);
+		int half = 0;
+		int triangle = 0;
+		for (int square = 0; square < 64; square++) {
+			int row = BitBoard.row(square);
+			int column = BitBoard.column(square);
+			if (column <= 3) HALF_BOARD[square] = half++;
+			if (row <= 3 && column <= row) TRIANGLE[square] = triangle++;
+		}
+	}
+
+	private final Material material;
+	private final long key;
+	private final long swappedKey;
+	private final FileChannel channel;
+	private final MappedByteBuffer values;
+
+	private Tablebase(Material material, FileChannel channel, MappedByteBuffer values) {
+		this.material = material;
+		this.key = material.key(false);
+		this.swappedKey = material.key(true);
+		this.channel = channel;
+		this.values = values;
+	}
+
+	public static Tablebase open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) > 0) {
+			}
+			String text = new String(header.array(), StandardCharsets.US_ASCII);
+			if (header.hasRemaining() || !text.startsWith(MAGIC)) throw new ChessException("Not a tablebase: " + path);
+
+			String signature = text.substring(MAGIC.length()).trim();
+			Material material = Material.of(signature);
+			if (!material.getSignature().equals(signature) || channel.size() != HEADER_SIZE + storedSize(material)) {
+				throw new ChessException("Damaged tablebase: " + path);
+			}
+			return new Tablebase(material, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public String getSignature() {
+		return material.getSignature();
+	}
+
+	public int getPieces() {
+		return material.size();
+	}
+
+	// the stored byte for the position, which must have this table's material with either side as the
+	// first; swapped tells which. The board is mirrored top to bottom when the colors are swapped
+	int probe(BitBoard b, boolean swapped) {
+		int king = square(b, 0, swapped);
+		int symmetry = symmetry(king, material.hasPawns());
+		int side = b.getSideToMove() ^ (swapped ? 1 : 0);
+		long index = (long) side * regions(material) + kingIndex(transform(king, symmetry), material.hasPawns());
+		for (int i = 1; i < material.size(); i++) {
+			index = (index << 6) | transform(square(b, i, swapped), symmetry);
+		}
+		return values.get(HEADER_SIZE + (int) index) & 0xFF;
+	}
+
+	long getKey() {
+		return key;
+	}
+
+	long getSwappedKey() {
+		return swappedKey;
+	}
+
+	public static boolean isWin(int value) {
+		return value >= 1 && value < 128;
+	}
+
+	public static boolean isLoss(int value) {
+		return value >= 128 && value < ILLEGAL;
+	}
+
+	// moves to mate, or to being mated; 0 for a draw and for a mate already on the board
+	public static int moves(int value) {
+		if (isWin(value)) return value;
+		if (isLoss(value)) return value - 128;
+		return 0;
+	}
+
+	// the same distance in plies: odd when winning, even when being mated
+	public static int plies(int value) {
+		if (isWin(value)) return 2 * value - 1;
+		if (isLoss(value)) return 2 * (value - 128);
+		return 0;
+	}
+
+	static int win(int plies) {
+		return (plies + 1) / 2;
+	}
+
+	static int loss(int plies) {
+		return 128 + plies / 2;
+	}
+
+	static String header(Material material) {
+		StringBuilder sb = new StringBuilder(MAGIC).append(material.getSignature());
+		while (sb.length() < HEADER_SIZE) {
+			sb.append(' ');
+		}
+		return sb.toString();
+	}
+
+	// king squares times the squares of the other pieces, for both sides to move
+	static long storedSize(Material material) {
+		return 2L * regions(material) << (6 * (material.size() - 1));
+	}
+
+	static int regions(Material material) {
+		return material.hasPawns() ? 32 : 10;
+	}
+
+	static int kingIndex(int square, boolean pawns) {
+		return pawns ? HALF_BOARD[square] : TRIANGLE[square];
+	}
+
+	// mirrors that bring the king to the stored part of the board: bit 0 swaps the files, bit 1 the ranks
+	// and bit 2 reflects in the a8-h1 diagonal. Pawns only allow the first, as they cannot turn round
+	static int symmetry(int king, boolean pawns) {
+		int symmetry = 0;
+		if (BitBoard.column(king) > 3) {
+			symmetry |= 1;
+			king ^= 7;
+		}
+		if (pawns) return symmetry;
+		if (BitBoard.row(king) > 3) {
+			symmetry |= 2;
+			king ^= 56;
+		}
+		if (BitBoard.column(king) > BitBoard.row(king)) symmetry |= 4;
+		return symmetry;
+	}
+
+	static int transform(int square, int symmetry) {
+		if ((symmetry & 1) != 0) square ^= 7;
+		if ((symmetry & 2) != 0) square ^= 56;
+		if ((symmetry & 4) != 0) square = ((square & 7) << 3) | (square >>> 3);
+		return square;
+	}
+
+	private int square(BitBoard b, int index, boolean swapped) {
+		int piece = material.piece(index);
+		if (!swapped) return b.pieceSquare(piece, material.occurrence(index));
+		int other = BitBoard.piece(BitBoard.colorOf(piece) ^ 1, BitBoard.typeOf(piece));
+		return b.pieceSquare(other, material.occurrence(index)) ^ 56;
+	}
+
+	// the mapping goes with the buffer once it is unreachable
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
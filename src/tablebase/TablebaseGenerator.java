@@ -0,0 +1,403 @@
+package tablebase;
+
+import chess.Attacks;
+import chess.BitBoard;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+
+// builds tables by retrograde analysis. Every placement of the pieces is one index, and the board's own
+// move generator first finds the mates, the stalemates and where captures and promotions lead, which the
+// tables of the smaller endgames answer. Then the distances grow a ply at a time: positions one move
+// before a loss are wins, and positions whose every move reaches a win are losses. Each pass is split
+// into ranges worked on by all threads; a pass only ever turns undecided positions into the one result
+// that ply can give, so threads racing on a position write the same value
+public class TablebaseGenerator implements AutoCloseable {
+
+	private static final int CHUNK = 1 << 16;
+	// in the exit array: no capture or promotion from the position
+	private static final int NO_EXIT = 255;
+
+	private final Path directory;
+	private final ExecutorService executor;
+	private Consumer<String> listener;
+
+	public TablebaseGenerator(Path directory, int threads) {
+		if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+		this.directory = directory;
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "tablebase");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	// called with a summary of every table written
+	public void setListener(Consumer<String> listener) {
+		this.listener = listener;
+	}
+
+	// the table's file, generated along with every smaller table it needs unless it is already there
+	public Path generate(String signature) throws IOException {
+		Material material = Material.of(signature);
+		Path file = directory.resolve(material.getSignature() + Tablebase.EXTENSION);
+		if (Files.exists(file)) return file;
+
+		for (Material successor : material.successors()) {
+			generate(successor.getSignature());
+		}
+		Files.createDirectories(directory);
+		long start = System.nanoTime();
+		try (Tablebases successors = Tablebases.open(directory)) {
+			Table table = new Table(material, successors);
+			table.solve();
+			table.write(file);
+			if (listener != null) listener.accept(table.summary(System.nanoTime() - start));
+		}
+		return file;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private interface Range {
+		int run(int from, int to);
+	}
+
+	// the range's results combined over the whole index, the ranges being worked on in parallel
+	private int run(int size, Range range, IntBinaryOperator combine) {
+		List<Callable<Integer>> parts = new ArrayList<>();
+		for (int from = 0; from < size; from += CHUNK) {
+			int start = from;
+			parts.add(() -> range.run(start, Math.min(start + CHUNK, size)));
+		}
+		try {
+			int result = 0;
+			for (Future<Integer> part : executor.invokeAll(parts)) {
+				result = combine.applyAsInt(result, part.get());
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating a tablebase", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("A tablebase thread failed", e.getCause());
+		}
+	}
+
+	// squares the piece can move to without capturing or promoting, which keep the position in the table
+	private static long quietTargets(int piece, int square, long occupied) {
+		int type = BitBoard.typeOf(piece);
+		if (type != BitBoard.PAWN) return attacks(type, square, occupied) & ~occupied;
+
+		boolean white = BitBoard.colorOf(piece) == BitBoard.WHITE;
+		int ahead = white ? square - 8 : square + 8;
+		if ((occupied & (1L << ahead)) != 0 || BitBoard.row(ahead) == (white ? 0 : 7)) return 0;
+		long targets = 1L << ahead;
+		int twoAhead = white ? square - 16 : square + 16;
+		if (BitBoard.row(square) == (white ? 6 : 1) && (occupied & (1L << twoAhead)) == 0) targets |= 1L << twoAhead;
+		return targets;
+	}
+
+	// squares the piece may have come from with a move that stayed in the table
+	private static long origins(int piece, int square, long occupied) {
+		int type = BitBoard.typeOf(piece);
+		if (type != BitBoard.PAWN) return attacks(type, square, occupied) & ~occupied;
+
+		boolean white = BitBoard.colorOf(piece) == BitBoard.WHITE;
+		int row = BitBoard.row(square);
+		// a pawn never stood on its first rank
+		if (row == (white ? 6 : 1)) return 0;
+		int behind = white ? square + 8 : square - 8;
+		if ((occupied & (1L << behind)) != 0) return 0;
+		long origins = 1L << behind;
+		int twoBehind = white ? square + 16 : square - 16;
+		if (row == (white ? 4 : 3) && (occupied & (1L << twoBehind)) == 0) origins |= 1L << twoBehind;
+		return origins;
+	}
+
+	private static long attacks(int type, int square, long occupied) {
+		switch (type) {
+			case BitBoard.KNIGHT: return Attacks.knight(square);
+			case BitBoard.BISHOP: return Attacks.bishop(square, occupied);
+			case BitBoard.ROOK: return Attacks.rook(square, occupied);
+			case BitBoard.QUEEN: return Attacks.queen(square, occupied);
+			default: return Attacks.king(square);
+		}
+	}
+
+	// exits compared from the mover's side: a quicker win, then a draw, then a slower loss
+	private static int rank(int value) {
+		if (value == NO_EXIT) return Integer.MIN_VALUE;
+		if (Tablebase.isWin(value)) return 1000 - Tablebase.plies(value);
+		if (Tablebase.isLoss(value)) return -1000 + Tablebase.plies(value);
+		return 0;
+	}
+
+	// one endgame being solved: a byte per index for the result so far and one for the best exit. The
+	// index holds the side to move above one six-bit square per piece, the first piece highest
+	private class Table {
+
+		private final Material material;
+		private final Tablebases successors;
+		private final int pieces;
+		private final int sideShift;
+		private final int size;
+		private final byte[] values;
+		private final byte[] exits;
+
+		Table(Material material, Tablebases successors) {
+			this.material = material;
+			this.successors = successors;
+			pieces = material.size();
+			sideShift = 6 * pieces;
+			size = 2 << sideShift;
+			values = new byte[size];
+			exits = new byte[size];
+		}
+
+		void solve() {
+			run(size, this::initialize, Integer::sum);
+			int longestExit = run(size, this::longestExit, Math::max);
+			for (int ply = 1; ; ply++) {
+				if (ply > Tablebase.MAX_PLIES) throw new IllegalStateException(material + " has mates longer than a table can hold");
+				int n = ply;
+				int found = run(size, (ply % 2 == 1) ? (from, to) -> wins(from, to, n) : (from, to) -> losses(from, to, n), Integer::sum);
+				// with nothing new at this ply, the next one has nothing to follow from
+				if (found == 0 && ply >= longestExit) break;
+			}
+		}
+
+		private int square(int index, int piece) {
+			return (index >>> (6 * (pieces - 1 - piece))) & 63;
+		}
+
+		// the index after the piece moves from one square to the other, with the other side to move
+		private int moved(int index, int piece, int from, int to) {
+			return (index ^ (1 << sideShift)) + ((to - from) << (6 * (pieces - 1 - piece)));
+		}
+
+		private long occupied(int index) {
+			long occupied = 0;
+			for (int i = 0; i < pieces; i++) {
+				occupied |= 1L << square(index, i);
+			}
+			return occupied;
+		}
+
+		private int initialize(int from, int to) {
+			BitBoard b = new BitBoard();
+			MoveList list = new MoveList();
+			for (int index = from; index < to; index++) {
+				exits[index] = (byte) NO_EXIT;
+				if (!place(b, index)) {
+					values[index] = (byte) Tablebase.ILLEGAL;
+					continue;
+				}
+
+				int side = b.getSideToMove();
+				MoveGenerator.generateLegal(b, list);
+				if (list.size() == 0) {
+					values[index] = (byte) (b.inCheck(side) ? Tablebase.loss(0) : Tablebase.DRAW);
+					continue;
+				}
+
+				int exit = NO_EXIT;
+				for (int i = 0; i < list.size(); i++) {
+					int move = list.get(i);
+					if (!Move.isCapture(move) && Move.promotion(move) == 0) continue;
+					b.makeMove(move);
+					int value = successors.probe(b);
+					b.undoMove();
+					if (value == Tablebase.NOT_FOUND || value == Tablebase.ILLEGAL) {
+						throw new IllegalStateException("No table for the position after " + Move.toString(move) + " in " + material);
+					}
+					// the value is the opponent's
+					int plies = Tablebase.plies(value) + 1;
+					if (plies > Tablebase.MAX_PLIES) throw new IllegalStateException(material + " has mates longer than a table can hold");
+					int outcome = Tablebase.isLoss(value) ? Tablebase.win(plies) : Tablebase.isWin(value) ? Tablebase.loss(plies) : Tablebase.DRAW;
+					if (rank(outcome) > rank(exit)) exit = outcome;
+				}
+				exits[index] = (byte) exit;
+			}
+			return 0;
+		}
+
+		// sets up the position on the board, or says it cannot occur
+		private boolean place(BitBoard b, int index) {
+			long occupied = 0;
+			for (int i = 0; i < pieces; i++) {
+				int square = square(index, i);
+				if ((occupied & (1L << square)) != 0) return false;
+				occupied |= 1L << square;
+				int row = BitBoard.row(square);
+				if (BitBoard.typeOf(material.piece(i)) == BitBoard.PAWN && (row == 0 || row == 7)) return false;
+			}
+
+			b.clear();
+			for (int i = 0; i < pieces; i++) {
+				b.putPiece(material.piece(i), square(index, i));
+			}
+			int side = index >>> sideShift;
+			if (side == BitBoard.BLACK) b.changeSide();
+			return !b.inCheck(side ^ 1);
+		}
+
+		private int longestExit(int from, int to) {
+			int longest = 0;
+			for (int index = from; index < to; index++) {
+				int exit = exits[index] & 0xFF;
+				if (exit != NO_EXIT) longest = Math.max(longest, Tablebase.plies(exit));
+			}
+			return longest;
+		}
+
+		// odd plies: a move to a position lost a ply earlier, or a capture or promotion winning this quickly
+		private int wins(int from, int to, int ply) {
+			int lost = Tablebase.loss(ply - 1);
+			int won = Tablebase.win(ply);
+			int found = 0;
+			for (int index = from; index < to; index++) {
+				int value = values[index] & 0xFF;
+				if (value == lost) {
+					int mover = (index >>> sideShift) ^ 1;
+					long occupied = occupied(index);
+					for (int i = 0; i < pieces; i++) {
+						int piece = material.piece(i);
+						if (BitBoard.colorOf(piece) != mover) continue;
+						int square = square(index, i);
+						long origins = origins(piece, square, occupied);
+						while (origins != 0) {
+							int previous = moved(index, i, square, Long.numberOfTrailingZeros(origins));
+							origins &= origins - 1;
+							// undecided, as illegal positions are marked and stalemates have no moves to get here
+							if (values[previous] == Tablebase.DRAW) {
+								values[previous] = (byte) won;
+								found++;
+							}
+						}
+					}
+				} else if (value == Tablebase.DRAW && (exits[index] & 0xFF) == won) {
+					values[index] = (byte) won;
+					found++;
+				}
+			}
+			return found;
+		}
+
+		// even plies: every move reaches a position won a ply earlier or sooner, and no capture or
+		// promotion does better than being mated this late
+		private int losses(int from, int to, int ply) {
+			int won = Tablebase.win(ply - 1);
+			int lost = Tablebase.loss(ply);
+			int found = 0;
+			for (int index = from; index < to; index++) {
+				int value = values[index] & 0xFF;
+				if (value == won) {
+					int mover = (index >>> sideShift) ^ 1;
+					long occupied = occupied(index);
+					for (int i = 0; i < pieces; i++) {
+						int piece = material.piece(i);
+						if (BitBoard.colorOf(piece) != mover) continue;
+						int square = square(index, i);
+						long origins = origins(piece, square, occupied);
+						while (origins != 0) {
+							int previous = moved(index, i, square, Long.numberOfTrailingZeros(origins));
+							origins &= origins - 1;
+							if (values[previous] == Tablebase.DRAW && isLost(previous, ply)) {
+								values[previous] = (byte) lost;
+								found++;
+							}
+						}
+					}
+				} else if (value == Tablebase.DRAW && (exits[index] & 0xFF) == lost && isLost(index, ply)) {
+					values[index] = (byte) lost;
+					found++;
+				}
+			}
+			return found;
+		}
+
+		private boolean isLost(int index, int ply) {
+			int exit = exits[index] & 0xFF;
+			if (exit != NO_EXIT && (!Tablebase.isLoss(exit) || Tablebase.plies(exit) > ply)) return false;
+
+			int side = index >>> sideShift;
+			long occupied = occupied(index);
+			for (int i = 0; i < pieces; i++) {
+				int piece = material.piece(i);
+				if (BitBoard.colorOf(piece) != side) continue;
+				int square = square(index, i);
+				long targets = quietTargets(piece, square, occupied);
+				while (targets != 0) {
+					int value = values[moved(index, i, square, Long.numberOfTrailingZeros(targets))] & 0xFF;
+					targets &= targets - 1;
+					// a move leaving the own king in check gives an illegal position
+					if (value == Tablebase.ILLEGAL) continue;
+					if (!Tablebase.isWin(value) || Tablebase.plies(value) > ply - 1) return false;
+				}
+			}
+			return true;
+		}
+
+		// the first king's part of the board for each side to move, each king square one block of the index
+		void write(Path file) throws IOException {
+			Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			int block = 1 << (6 * (pieces - 1));
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				writeFully(channel, ByteBuffer.wrap(Tablebase.header(material).getBytes(StandardCharsets.US_ASCII)));
+				for (int side = 0; side < 2; side++) {
+					for (int king = 0; king < 64; king++) {
+						if (Tablebase.kingIndex(king, material.hasPawns()) < 0) continue;
+						writeFully(channel, ByteBuffer.wrap(values, (side << sideShift) | (king * block), block));
+					}
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		String summary(long nanos) {
+			long legal = 0;
+			long wins = 0;
+			long losses = 0;
+			int longest = 0;
+			for (byte b : values) {
+				int value = b & 0xFF;
+				if (value == Tablebase.ILLEGAL) continue;
+				legal++;
+				if (Tablebase.isWin(value)) wins++;
+				if (Tablebase.isLoss(value)) losses++;
+				longest = Math.max(longest, Tablebase.moves(value));
+			}
+			return String.format("%s: %d positions, %d won, %d drawn, %d lost, longest mate %d moves, %.1f s",
+					material, legal, wins, legal - wins - losses, losses, longest, nanos / 1e9);
+		}
+
+		private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package tablebase;
+
+import chess.BitBoard;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// the tables found in a directory, looked up by the material on the board. A probe reads one byte of a
+// mapped file and allocates nothing, so a search can probe at every node
+public class Tablebases implements AutoCloseable {
+
+	private final Tablebase[] tables;
+	private final int maxPieces;
+
+	private Tablebases(List<Tablebase> tables) {
+		this.tables = tables.toArray(new Tablebase[0]);
+		int max = 0;
+		for (Tablebase t : tables) {
+			max = Math.max(max, t.getPieces());
+		}
+		maxPieces = max;
+	}
+
+	public static Tablebases open(Path directory) throws IOException {
+		List<Tablebase> tables = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Tablebase.EXTENSION)) {
+			for (Path file : files) {
+				tables.add(Tablebase.open(file));
+			}
+		} catch (IOException | RuntimeException e) {
+			for (Tablebase t : tables) {
+				t.close();
+			}
+			throw e;
+		}
+		return new Tablebases(tables);
+	}
+
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	public List<String> getSignatures() {
+		List<String> list = new ArrayList<>();
+		for (Tablebase t : tables) {
+			list.add(t.getSignature());
+		}
+		return list;
+	}
+
+	// the value Tablebase stores for the position, or NOT_FOUND when no table has its material. Tables
+	// know nothing of castling or en passant, so positions with either are not found either
+	public int probe(BitBoard b) {
+		if (Long.bitCount(b.getOccupied()) > maxPieces) return Tablebase.NOT_FOUND;
+		if (b.getCastlingRights() != 0 || b.getEnPassantSquare() != BitBoard.NO_SQUARE) return Tablebase.NOT_FOUND;
+
+		long key = Material.key(b);
+		for (Tablebase t : tables) {
+			if (t.getKey() == key) return t.probe(b, false);
+			if (t.getSwappedKey() == key) return t.probe(b, true);
+		}
+		return Tablebase.NOT_FOUND;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Tablebase t : tables) {
+			t.close();
+		}
+	}
+}